@@ -0,0 +1,111 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The class <b>BagGenerator</b> chooses shapes with the 7-bag system of modern
+ * Tetris games. The 7 shapes are put in a bag in a random order and given one
+ * by one, then the bag is filled again. Every shape then comes once every 7
+ * shapes.
+ * 
+ * @author Benoît Jeaurond
+ */
+class BagGenerator implements PieceGenerator {
+
+    /**
+     * Random numbers of the generator
+     */
+    private XorShift rand;
+
+    /**
+     * Types of shape in the bag
+     */
+    private int[] bag;
+
+    /**
+     * Index of the next shape in the bag
+     */
+    private int index;
+
+    /**
+     * Constructor of the BagGenerator class specifying the seed
+     * 
+     * @param seed the seed of the generator
+     */
+    public BagGenerator(long seed) {
+        this.rand = new XorShift(seed);
+        this.bag = new int[] { 1, 2, 3, 4, 5, 6, 7 };
+        this.index = bag.length;
+    }
+
+    /**
+     * Constructor of the BagGenerator class copying another generator
+     * 
+     * @param generator the generator to be copied
+     */
+    public BagGenerator(BagGenerator generator) {
+        this.rand = new XorShift(generator.rand);
+        this.bag = generator.bag.clone();
+        this.index = generator.index;
+    }
+
+    /**
+     * Constructor of the BagGenerator class reading a generator written by
+     * write(), after its kind
+     * 
+     * @param buffer the buffer where the generator was written
+     * @throws IOException if the index is not from 0 to 7 or a shape of the
+     *             bag is not from 1 to 7
+     */
+    BagGenerator(ByteBuffer buffer) throws IOException {
+        this.rand = new XorShift(0);
+        this.rand.setState(buffer.getLong());
+        this.bag = new int[7];
+        this.index = buffer.get();
+
+        if (index < 0 || index > bag.length) {
+            throw new IOException("Invalid index in the bag " + index);
+        }
+
+        for (int i = 0; i < bag.length; i++) {
+            bag[i] = buffer.get();
+
+            if (bag[i] < 1 || bag[i] > 7) {
+                throw new IOException("Invalid shape in the bag " + bag[i]);
+            }
+        }
+    }
+
+    @Override
+    public int next() {
+        if (index == bag.length) {
+            // Fisher-Yates shuffle
+            for (int i = bag.length - 1; i > 0; i--) {
+                int j = rand.nextInt(i + 1);
+                int type = bag[i];
+                bag[i] = bag[j];
+                bag[j] = type;
+            }
+
+            index = 0;
+        }
+
+        return bag[index++];
+    }
+
+    @Override
+    public PieceGenerator copy() {
+        return new BagGenerator(this);
+    }
+
+    @Override
+    public void write(ByteBuffer buffer) {
+        buffer.put((byte) BAG);
+        buffer.putLong(rand.getState());
+        buffer.put((byte) index);
+
+        for (int i : bag) {
+            buffer.put((byte) i);
+        }
+    }
+
+}
@@ -0,0 +1,362 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>BitBoard</b> stores the fallen shapes of the Tetris board. Each
+ * row is kept as an integer where the bit <i>x</i> is set when the cell at the
+ * column <i>x</i> is occupied, and a parallel array keeps the type of shape of
+ * every cell. This makes collision detection and finding full lines simple bit
+ * operations that do not create any object.
+ *
+ * @author Benoît Jeaurond
+ */
+class BitBoard {
+
+    /**
+     * Mask of a row where every cell is occupied
+     */
+    public static final int FULL_ROW = (1 << Board.WIDTH) - 1;
+
+    /**
+     * One bit mask per row, the bit x is set if the cell at the column x is occupied
+     */
+    private int[] rows;
+
+    /**
+     * Type of shape of every cell (0 if empty), indexed by y * WIDTH + x
+     */
+    private byte[] types;
+
+    /**
+     * Height of every column, kept up to date when cells are changed
+     */
+    private int[] heights;
+
+    /**
+     * Number of empty cells under the lowest cleared row for every column, reused
+     * by collapse()
+     */
+    private int[] gaps;
+
+    /**
+     * Zobrist hash of the occupied cells, see Zobrist
+     */
+    private long hash;
+
+    /**
+     * Constructor of the BitBoard class creating an empty board
+     */
+    public BitBoard() {
+        this.rows = new int[Board.HEIGHT];
+        this.types = new byte[Board.HEIGHT * Board.WIDTH];
+        this.heights = new int[Board.WIDTH];
+        this.gaps = new int[Board.WIDTH];
+    }
+
+    /**
+     * Constructor of the BitBoard class copying another board
+     * 
+     * @param board the board to be copied
+     */
+    public BitBoard(BitBoard board) {
+        this.rows = board.rows.clone();
+        this.types = board.types.clone();
+        this.heights = board.heights.clone();
+        this.gaps = new int[Board.WIDTH];
+        this.hash = board.hash;
+    }
+
+    /**
+     * Replaces every cell by the cells of another board, without creating any
+     * object
+     * 
+     * @param board the board to be copied
+     */
+    public void copy(BitBoard board) {
+        System.arraycopy(board.rows, 0, rows, 0, rows.length);
+        System.arraycopy(board.types, 0, types, 0, types.length);
+        System.arraycopy(board.heights, 0, heights, 0, heights.length);
+        hash = board.hash;
+    }
+
+    /**
+     * Checks if a cell is occupied
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @return true if the cell is within the board and occupied
+     */
+    public boolean isOccupied(int x, int y) {
+        if (x < 0 || x >= Board.WIDTH || y < 0 || y >= Board.HEIGHT) {
+            return false;
+        }
+
+        return (rows[y] & (1 << x)) != 0;
+    }
+
+    /**
+     * Checks if a shape can be placed somewhere
+     * 
+     * @param mask the 16 bit mask of the shape in its 4 by 4 box, see Shape
+     * @param x the x coordinate of the box
+     * @param y the y coordinate of the box
+     * @return true if every cell of the shape is within the board and empty
+     */
+    public boolean fits(int mask, int x, int y) {
+        for (int i = 0; i < 4; i++) {
+            int bits = (mask >>> (i * 4)) & 0xF;
+
+            if (bits == 0) {
+                continue;
+            }
+
+            if (y + i < 0 || y + i >= Board.HEIGHT) {
+                return false;
+            }
+
+            if (x < 0) {
+                // Cells shifted out of the left side of the row
+                if ((bits & ((1 << -x) - 1)) != 0) {
+                    return false;
+                }
+
+                bits >>>= -x;
+            } else {
+                bits <<= x;
+            }
+
+            if ((bits & ~FULL_ROW) != 0 || (rows[y + i] & bits) != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Occupies the cells of a shape
+     * 
+     * @param mask the 16 bit mask of the shape in its 4 by 4 box, see Shape
+     * @param x the x coordinate of the box
+     * @param y the y coordinate of the box
+     * @param type the type of shape
+     */
+    public void place(int mask, int x, int y, int type) {
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            int bit = Integer.numberOfTrailingZeros(bits);
+            set(x + (bit & 3), y + (bit >> 2), type);
+        }
+    }
+
+    /**
+     * Counts the holes of the board
+     * 
+     * @return the number of empty cells with an occupied cell above them in the
+     *         same column
+     */
+    public int countHoles() {
+        int holes = 0;
+        int covered = 0;
+
+        for (int i : rows) {
+            holes += Integer.bitCount(covered & ~i);
+            covered |= i;
+        }
+
+        return holes;
+    }
+
+    /**
+     * Getter for the type of a cell
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @return the type of shape of the cell, 0 if it is empty
+     */
+    public int getType(int x, int y) {
+        return types[y * Board.WIDTH + x];
+    }
+
+    /**
+     * Occupies a cell with a type of shape
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @param type the type of shape of the cell
+     */
+    public void set(int x, int y, int type) {
+        if ((rows[y] & (1 << x)) == 0) {
+            hash ^= Zobrist.cell(x, y);
+        }
+
+        rows[y] |= 1 << x;
+        types[y * Board.WIDTH + x] = (byte) type;
+
+        if (Board.HEIGHT - y > heights[x]) {
+            heights[x] = Board.HEIGHT - y;
+        }
+    }
+
+    /**
+     * Empties a cell
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     */
+    public void clear(int x, int y) {
+        if ((rows[y] & (1 << x)) != 0) {
+            hash ^= Zobrist.cell(x, y);
+        }
+
+        rows[y] &= ~(1 << x);
+        types[y * Board.WIDTH + x] = 0;
+
+        if (Board.HEIGHT - y == heights[x]) {
+            updateHeights();
+        }
+    }
+
+    /**
+     * Getter for the mask of a row
+     *
+     * @param y the row
+     * @return the bit mask of the occupied cells of the row
+     */
+    public int getRow(int y) {
+        return rows[y];
+    }
+
+    /**
+     * Getter for the height of a column
+     *
+     * @param x the column
+     * @return the number of rows from the bottom of the board to the highest
+     *         occupied cell of the column (0 if the column is empty)
+     */
+    public int getHeight(int x) {
+        return heights[x];
+    }
+
+    /**
+     * Getter for the hash of the board
+     *
+     * @return the Zobrist hash of the occupied cells, equal for boards with the
+     *         same occupied cells whatever their types
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Removes every full row in a single pass. The rows that are kept are moved
+     * down in place and the rows left at the top are emptied.
+     *
+     * @return a mask where the bit y is set if the row y was full, 0 if no row
+     *         was removed
+     */
+    public int clearFullRows() {
+        int fullRows = 0;
+        int write = Board.HEIGHT - 1;
+
+        for (int i = Board.HEIGHT - 1; i >= 0; i--) {
+            if (rows[i] == FULL_ROW) {
+                fullRows |= 1 << i;
+            } else {
+                if (write != i) {
+                    rows[write] = rows[i];
+                    System.arraycopy(types, i * Board.WIDTH, types, write * Board.WIDTH, Board.WIDTH);
+                }
+                write--;
+            }
+        }
+
+        if (fullRows != 0) {
+            for (int i = 0; i <= write; i++) {
+                rows[i] = 0;
+            }
+            Arrays.fill(types, 0, (write + 1) * Board.WIDTH, (byte) 0);
+
+            updateHeights();
+            hash = Zobrist.hash(rows);
+        }
+
+        return fullRows;
+    }
+
+    /**
+     * Makes the cells above a row fall into the empty space right under that row.
+     * Each column falls on its own, by the number of empty cells found under the
+     * row in that column.
+     *
+     * @param bottom the lowest row (inclusive) of the cells that can fall
+     * @return true if at least one cell fell
+     */
+    public boolean collapse(int bottom) {
+        // Counts the empty cells under the row for every column at once
+        int open = FULL_ROW;
+        for (int i = 0; i < Board.WIDTH; i++) {
+            gaps[i] = 0;
+        }
+
+        for (int i = bottom + 1; i < Board.HEIGHT && open != 0; i++) {
+            open &= ~rows[i];
+
+            for (int bits = open; bits != 0; bits &= bits - 1) {
+                gaps[Integer.numberOfTrailingZeros(bits)]++;
+            }
+        }
+
+        boolean moved = false;
+
+        for (int i = 0; i < Board.WIDTH; i++) {
+            int num = gaps[i];
+
+            // Nothing falls in this column if it is empty above the row
+            if (num == 0 || Board.HEIGHT - heights[i] > bottom) {
+                continue;
+            }
+
+            int bit = 1 << i;
+            for (int j = bottom; j >= 0; j--) {
+                int from = j * Board.WIDTH + i;
+                int to = (j + num) * Board.WIDTH + i;
+
+                rows[j + num] = (rows[j + num] & ~bit) | (rows[j] & bit);
+                types[to] = types[from];
+            }
+
+            for (int j = 0; j < num; j++) {
+                rows[j] &= ~bit;
+                types[j * Board.WIDTH + i] = 0;
+            }
+
+            moved = true;
+        }
+
+        if (moved) {
+            updateHeights();
+            hash = Zobrist.hash(rows);
+        }
+
+        return moved;
+    }
+
+    /**
+     * Recomputes the height of every column from the masks of the rows
+     */
+    private void updateHeights() {
+        int seen = 0;
+
+        for (int i = 0; i < Board.WIDTH; i++) {
+            heights[i] = 0;
+        }
+
+        for (int i = 0; i < Board.HEIGHT && seen != FULL_ROW; i++) {
+            for (int bits = rows[i] & ~seen; bits != 0; bits &= bits - 1) {
+                heights[Integer.numberOfTrailingZeros(bits)] = Board.HEIGHT - i;
+            }
+
+            seen |= rows[i];
+        }
+    }
+
+}
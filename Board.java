@@ -1,14 +1,10 @@
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import java.util.Set;
-import java.util.HashSet;
-import java.util.function.Predicate;
 import java.util.Arrays;
 
 /**
  * The class <b>Board</b> represents the board/grid used in Tetris. This class
- * contains the moving shape, a list of points of fallen shapes, and stats about the
+ * contains the moving shape, a bit board of the fallen shapes, and stats about the
  * game. It contains the methods used for collision detection, manipulating the 
  * falling shape, and clearing full lines all while keeping up with the score, 
  * level, number of cleared lines, and the speed of the falling shape.
@@ -30,159 +26,346 @@ class Board {
     /**
      * Stats about the current game
      */
-    private int numClearedLines, level, score, timePerBlock;
+    private int numClearedLines, level, score, timePerBlock, numShapes;
 
     /**
-     * A list of points of the fallen shapes
+     * Number of cells the current shape falls per frame, in 1/CELL of a cell
      */
-    private List<Point> points;
+    private int dropSpeed;
 
     /**
-     * Random object to create random numbers for the type of shape
+     * The cells of the fallen shapes
      */
-    private Random rand;
+    private BitBoard grid;
+
+    /**
+     * Cells that may have changed since the last diff, one bit mask per row
+     */
+    private int[] dirty;
+
+    /**
+     * Type of every cell (including the current shape) at the last diff
+     */
+    private byte[] snapshot;
+
+    /**
+     * Chooses the type of the next shape
+     */
+    private PieceGenerator generator;
 
     /**
      * The shape that is currently moving
      */
     private Shape currentShape;
 
+    /**
+     * Types of the next shapes, in a ring buffer starting at nextHead and filled
+     * by the generator as shapes are created
+     */
+    private int[] next;
+    private int nextHead;
+
+    /**
+     * Type of the held shape (0 if none), and true if a shape was already held
+     * since the current shape was created
+     */
+    private int hold;
+    private boolean holdUsed;
+
+    /**
+     * Row of the box of the ghost, where the current shape would land
+     */
+    private int ghostY;
+
+    /**
+     * Timers of the hot paths, null if the board is not measured
+     */
+    private Metrics metrics;
+
     /**
      * Constants specifying the board size
      */
     public static final int WIDTH = 10, HEIGHT = 22;
 
+    /**
+     * A drop speed of CELL is one cell per frame (1G), and the drop speed is at
+     * most MAX_G cells per frame (20G, the shape lands as soon as it appears)
+     */
+    public static final int CELL = 1 << 16, MAX_G = 20;
+
+    /**
+     * Flag added by getCell() to the type of the cells of the ghost
+     */
+    public static final int GHOST = 8;
+
+    /**
+     * Number of next shapes known in advance
+     */
+    public static final int PREVIEW = 5;
+
     /**
      * Constructor of the Board class
      */
     public Board() {
-        this.points = new ArrayList<Point>();
-        this.rand = new Random();
+        this(System.nanoTime());
+    }
+
+    /**
+     * Constructor of the Board class with a seed, the shapes are then always
+     * created in the same order
+     * 
+     * @param seed the seed of the NES style generator choosing the shapes
+     */
+    public Board(long seed) {
+        this(new NesGenerator(seed));
+    }
+
+    /**
+     * Constructor of the Board class specifying how the shapes are chosen
+     * 
+     * @param generator the generator choosing the type of the shapes
+     */
+    public Board(PieceGenerator generator) {
+        this.grid = new BitBoard();
+        this.dirty = new int[HEIGHT];
+        this.snapshot = new byte[WIDTH * HEIGHT];
+        this.generator = generator;
+        this.next = new int[PREVIEW];
+        this.nextHead = 0;
+        this.hold = 0;
+        this.holdUsed = false;
         this.gameOver = false;
         this.numClearedLines = 0;
+        this.numShapes = 0;
         this.level = 0;
         this.score = 0;
         this.gravity = true;
         this.timePerBlock = 800;
+        this.dropSpeed = CELL / 48;
+
+        for (int i = 0; i < PREVIEW; i++) {
+            next[i] = generator.next();
+        }
 
+        Arrays.fill(dirty, BitBoard.FULL_ROW);
         createCurrentShape();
     }
 
     /**
-     * Creates a new shape randomly and sets it as the current shape
+     * Constructor of the Board class copying another board. Both boards can then
+     * be played on their own, the copy creates the same shapes as the original.
+     * 
+     * @param board board to be copied
+     */
+    public Board(Board board) {
+        this.grid = new BitBoard(board.grid);
+        this.dirty = board.dirty.clone();
+        this.snapshot = board.snapshot.clone();
+        this.generator = board.generator.copy();
+        this.currentShape = new Shape(board.currentShape);
+        this.ghostY = board.ghostY;
+        this.next = board.next.clone();
+        this.nextHead = board.nextHead;
+        this.hold = board.hold;
+        this.holdUsed = board.holdUsed;
+        this.gameOver = board.gameOver;
+        this.numClearedLines = board.numClearedLines;
+        this.numShapes = board.numShapes;
+        this.level = board.level;
+        this.score = board.score;
+        this.gravity = board.gravity;
+        this.timePerBlock = board.timePerBlock;
+        this.dropSpeed = board.dropSpeed;
+    }
+
+    /**
+     * Constructor of the Board class from a state
+     * 
+     * @param state the state of the new board
      */
-    public void createCurrentShape() {
-        int num = rand.nextInt(8);
+    public Board(BoardState state) {
+        this.grid = new BitBoard();
+        this.dirty = new int[HEIGHT];
+        this.snapshot = new byte[WIDTH * HEIGHT];
+        this.next = new int[PREVIEW];
 
-        if (num == 7 || (currentShape != null && num == currentShape.getType())) {
-            num = rand.nextInt(7);
-        }
+        restore(state);
+    }
 
-        if (currentShape != null) {
-            points.addAll(currentShape.getPoints());
+    /**
+     * Copies the board into an immutable state
+     * 
+     * @return the state of the board
+     */
+    public BoardState getState() {
+        return new BoardState(this);
+    }
+
+    /**
+     * Goes back to a state, every cell is then marked as changed for the diff
+     * 
+     * @param state the state returned by getState()
+     */
+    public void restore(BoardState state) {
+        grid.copy(state.getGrid());
+        generator = state.getGenerator();
+        currentShape = state.createShape();
+        nextHead = 0;
+        hold = state.getHold();
+        holdUsed = state.getHoldUsed();
+
+        for (int i = 0; i < PREVIEW; i++) {
+            next[i] = state.getNext(i);
         }
+        gameOver = state.getGameOver();
+        numClearedLines = state.getNumClearedLines();
+        numShapes = state.getNumShapes();
+        level = state.getLevel();
+        score = state.getScore();
+        gravity = state.getGravity();
+        timePerBlock = state.getTimePerBlock();
+        updateSpeed();
 
-        currentShape = new Shape(num + 1);
+        ghostY = currentShape.getY() + getDropDistance();
+        markRows(0, HEIGHT - 1);
     }
 
     /**
-     * Helper method for collision detection
-     * 
-     * @return true if there are point(s) down the current shape
+     * Locks the current shape and sets the first of the next shapes as the
+     * current shape, the generator then chooses a new next shape
      */
-    private boolean hasPointsDown() {
-        for (Point i : currentShape.getPoints()) {
-            if (points.contains(new Point(i.getX(), i.getY() + 1))) {
-                return true;
+    public void createCurrentShape() {
+        if (currentShape != null) {
+            for (Point i : currentShape.getPoints()) {
+                grid.set(i.getX(), i.getY(), i.getType());
             }
         }
 
-        return false;
+        currentShape = new Shape(takeNext());
+        numShapes++;
+        holdUsed = false;
+        markShape();
     }
 
     /**
-     * Helper method for collision detection
+     * Removes the first of the next shapes, replaced at the end by a shape of
+     * the generator
      * 
-     * @return true if there are point(s) right of the current shape
+     * @return the type of the removed shape
      */
-    private boolean hasPointsRight() {
-        for (Point i : currentShape.getPoints()) {
-            if (points.contains(new Point(i.getX() + 1, i.getY()))) {
-                return true;
-            }
-        }
+    private int takeNext() {
+        int type = next[nextHead];
+        next[nextHead] = generator.next();
+        nextHead = (nextHead + 1) % PREVIEW;
 
-        return false;
+        return type;
     }
 
     /**
-     * Helper method for collision detection
-     * 
-     * @return true if there are point(s) left of the current shape
+     * Puts the current shape in the hold slot, and takes out the shape that was
+     * held (or the next shape if none). A shape can only be held once until it is
+     * locked.
      */
-    private boolean hasPointsLeft() {
-        for (Point i : currentShape.getPoints()) {
-            if (points.contains(new Point(i.getX() - 1, i.getY()))) {
-                return true;
-            }
+    public void holdShape() {
+        if (holdUsed) {
+            return;
         }
 
-        return false;
+        int type = currentShape.getType();
+
+        markShape();
+        currentShape = new Shape(hold != 0 ? hold : takeNext());
+        hold = type;
+        holdUsed = true;
+        markShape();
     }
 
     /**
-     * Helper method for ending the game
-     * 
-     * @return true if the current shape is close to the top
+     * Marks the cells of the current shape and of its ghost as changed, called
+     * before and after the shape moves
      */
-    private boolean closeToTopBorder() {
+    private void markShape() {
         for (Point i : currentShape.getPoints()) {
-            if (i.getY() == 0) {
-                return true;
-            }
+            dirty[i.getY()] |= 1 << i.getX();
         }
 
-        return false;
+        ghostY = currentShape.getY() + getDropDistance();
+
+        for (int i : Shape.getCells(currentShape.getType(), currentShape.getRotation())) {
+            dirty[ghostY + (i >> 2)] |= 1 << (currentShape.getX() + (i & 3));
+        }
     }
 
     /**
-     * Helper method for moving the shape left
+     * Marks whole rows as changed
      * 
-     * @return true if the current shape is close to the left
+     * @param first the first row (inclusive)
+     * @param last the last row (inclusive)
      */
-    private boolean closeToLeftBorder() {
-        for (Point i : currentShape.getPoints()) {
-            if (i.getX() == 0) {
-                return true;
-            }
+    private void markRows(int first, int last) {
+        for (int i = first; i <= last; i++) {
+            dirty[i] = BitBoard.FULL_ROW;
         }
-
-        return false;
     }
 
     /**
-     * Helper method for moving the shape right
+     * Finds the cells that changed since the last call of this method. Only the
+     * cells that were marked by a move, a new shape or a cleared line are
+     * compared, so the work done is proportional to what changed.
      * 
-     * @return true if the current shape is close to the right
+     * The board keeps a single copy of the cells as of the last call, so it must
+     * only have one caller, the renderer: a second caller in the same frame
+     * would receive an empty diff. Other views read the board directly.
+     * 
+     * @param diff receives the changed cells, it is cleared first
      */
-    private boolean closeToRightBorder() {
-        for (Point i : currentShape.getPoints()) {
-            if (i.getX() == WIDTH - 1) {
-                return true;
+    public void diff(BoardDiff diff) {
+        diff.clear();
+
+        for (int i = 0; i < HEIGHT; i++) {
+            for (int bits = dirty[i]; bits != 0; bits &= bits - 1) {
+                int j = Integer.numberOfTrailingZeros(bits);
+                int type = getCell(j, i);
+
+                if (snapshot[i * WIDTH + j] != type) {
+                    snapshot[i * WIDTH + j] = (byte) type;
+                    diff.addCell(CellKey.of(j, i, type));
+                }
             }
+
+            dirty[i] = 0;
         }
+    }
 
-        return false;
+    /**
+     * Helper method for collision detection
+     * 
+     * @param dx the number of columns to move the current shape
+     * @param dy the number of rows to move the current shape
+     * @return true if the moved shape is within the board and does not collide
+     *         with other shapes
+     */
+    private boolean canMove(int dx, int dy) {
+        return grid.fits(currentShape.getMask(), currentShape.getX() + dx, currentShape.getY() + dy);
     }
 
     /**
-     * Helper method for moving the shape down
+     * Checks if the current shape rests on the floor or on other shapes
      * 
-     * @return true if the current shape is close to the bottom
+     * @return true if the current shape can't move down
      */
-    private boolean closeToBottomBorder() {
+    public boolean isGrounded() {
+        return !canMove(0, 1);
+    }
+
+    /**
+     * Helper method for ending the game
+     * 
+     * @return true if the current shape is close to the top
+     */
+    private boolean closeToTopBorder() {
         for (Point i : currentShape.getPoints()) {
-            if (i.getY() == HEIGHT - 1) {
+            if (i.getY() == 0) {
                 return true;
             }
         }
@@ -193,27 +376,62 @@ class Board {
     /**
      * Helper method for rotating the current shape
      * 
-     * @return true if the next rotation is within the board and does not collide
-     *         with other shapes
+     * @return true if the next rotation, kicked if needed, is within the board
+     *         and does not collide with other shapes
      */
     private boolean canRotate() {
-        List<Point> rotated = currentShape.getRotatePoints();
-
-        for (Point i : rotated) {
-            if (i.getX() >= WIDTH || i.getY() >= HEIGHT || i.getX() < 0 || i.getY() < 0 || points.contains(i)) {
-                return false;
-            }
-        }
+        return kick(KickTable.RIGHT) != Placement.NONE;
+    }
 
-        return true;
+    /**
+     * Helper method for rotating the current shape with the Super Rotation System
+     * 
+     * @param turns the direction, see KickTable
+     * @return the position of the rotated shape, or Placement.NONE if it can't
+     *         rotate
+     */
+    private int kick(int turns) {
+        return KickTable.rotate(grid, currentShape.getType(), currentShape.getX(), currentShape.getY(), currentShape.getRotation(), turns);
     }
 
     /**
-     * Rotates the current shape
+     * Rotates the current shape to the right
      */
     public void rotate() {
-        if (canRotate()) {
-            currentShape.rotate();
+        rotate(KickTable.RIGHT);
+    }
+
+    /**
+     * Rotates the current shape to the left
+     */
+    public void rotateLeft() {
+        rotate(KickTable.LEFT);
+    }
+
+    /**
+     * Rotates the current shape by a half turn
+     */
+    public void rotate180() {
+        rotate(KickTable.HALF);
+    }
+
+    /**
+     * Rotates the current shape, kicking it to the first position where it fits
+     * 
+     * @param turns the direction, see KickTable
+     */
+    private void rotate(int turns) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        int placement = kick(turns);
+
+        if (placement != Placement.NONE) {
+            markShape();
+            currentShape.setPosition(Placement.getX(placement), Placement.getY(placement), Placement.getRotation(placement));
+            markShape();
+        }
+
+        if (metrics != null) {
+            metrics.record(Metrics.ROTATE, System.nanoTime() - start);
         }
     }
 
@@ -221,8 +439,10 @@ class Board {
      * Moves the current shape left
      */
     public void moveLeft() {
-        if (!hasPointsLeft() && !closeToLeftBorder()) {
+        if (canMove(-1, 0)) {
+            markShape();
             currentShape.moveLeft();
+            markShape();
         }
     }
 
@@ -230,8 +450,10 @@ class Board {
      * Moves the current shape right
      */
     public void moveRight() {
-        if (!hasPointsRight() && !closeToRightBorder()) {
+        if (canMove(1, 0)) {
+            markShape();
             currentShape.moveRight();
+            markShape();
         }
     }
 
@@ -240,8 +462,12 @@ class Board {
      * another shape if it can't move down
      */
     public void moveDown() {
-        if (!hasPointsDown() && !closeToBottomBorder()) {
+        long start = metrics != null ? System.nanoTime() : 0;
+
+        if (canMove(0, 1)) {
+            markShape();
             currentShape.moveDown();
+            markShape();
         } else {
             if (closeToTopBorder()) {
                 gameOver = true;
@@ -250,81 +476,105 @@ class Board {
                 removeLines();
             }
         }
+
+        if (metrics != null) {
+            metrics.record(Metrics.MOVE_DOWN, System.nanoTime() - start);
+        }
     }
 
     /**
-     * Removes full lines (if present), updates score and level
+     * Moves the current shape down by many cells at once, checking the cells on
+     * the way in a single sweep. The shape is not locked, even if it lands.
+     * 
+     * @param cells the maximum number of cells to fall
+     * @return the number of cells the shape fell, 0 if it was grounded
      */
-    private void removeLines() {
-        boolean gravityTriggerd;
+    public int fall(int cells) {
+        int distance = Math.min(cells, getDropDistance());
 
-        do {
-            gravityTriggerd = false;
-            List<Integer> fullLines = new ArrayList<Integer>(HEIGHT);
-
-            List<Point> allPoints = getPoints();
-
-            if (allPoints.size() != 0) {
-                for (int i = 0; i < HEIGHT; i++) {
-                    boolean full = true;
-                    row: for (int j = 0; j < WIDTH; j++) {
-                        if (!allPoints.contains(new Point(j, i))) {
-                            full = false;
-                            break row;
-                        }
-                    }
+        if (distance > 0) {
+            markShape();
+            currentShape.setPosition(currentShape.getX(), currentShape.getY() + distance, currentShape.getRotation());
+            markShape();
+        }
 
-                    if (full) {
-                        fullLines.add(i);
-                    }
+        return distance;
+    }
+
+    /**
+     * Moves the current shape down as far as it can go and locks it
+     */
+    public void hardDrop() {
+        fall(HEIGHT);
+        moveDown();
+    }
+
+    /**
+     * Finds how far the current shape can fall. When the shape is above the
+     * highest cell of every column it covers, the distance only depends on the
+     * heights of these columns. Otherwise (the shape is tucked under other
+     * cells) the shape is moved down row by row until it collides.
+     * 
+     * @return the number of rows the current shape can move down
+     */
+    public int getDropDistance() {
+        int[] bottoms = Shape.getBottoms(currentShape.getType(), currentShape.getRotation());
+        int x = currentShape.getX();
+        int y = currentShape.getY();
+        int distance = HEIGHT;
+
+        for (int i = 0; i < 4; i++) {
+            if (bottoms[i] == -1) {
+                continue;
+            }
+
+            // Row of the highest cell of the column, HEIGHT if it is empty
+            int top = HEIGHT - grid.getHeight(x + i);
+            int bottom = y + bottoms[i];
+
+            if (top <= bottom) {
+                int mask = currentShape.getMask();
+                distance = 0;
+
+                while (grid.fits(mask, x, y + distance + 1)) {
+                    distance++;
                 }
+
+                return distance;
             }
 
-            if (fullLines.size() != 0) {
-                numClearedLines += fullLines.size();
-                score += calculateCurrentScore(fullLines.size());
+            distance = Math.min(distance, top - bottom - 1);
+        }
 
-                int mostBottomLine = 0;
+        return distance;
+    }
 
-                for (int i : fullLines) {
-                    if (i > mostBottomLine) {
-                        mostBottomLine = i;
-                    }
+    /**
+     * Removes full lines (if present), updates score and level. Not private so it
+     * can be measured on its own by BoardBenchmark.
+     */
+    void removeLines() {
+        long start = metrics != null ? System.nanoTime() : 0;
+        int lines = numClearedLines;
+        boolean gravityTriggerd;
+
+        do {
+            gravityTriggerd = false;
+            int fullLines = grid.clearFullRows();
 
-                    Predicate<Point> pointsPredicate = p -> p.getY() == i;
-                    points.removeIf(pointsPredicate);
+            if (fullLines != 0) {
+                int numFullLines = Integer.bitCount(fullLines);
+                int mostBottomLine = 31 - Integer.numberOfLeadingZeros(fullLines);
 
-                    for (int j = 0; j < points.size(); j++) {
-                        if (points.get(j).getY() < i) {
-                            points.get(j).modY(1);
-                        }
-                    }
-                }
+                numClearedLines += numFullLines;
+                score += calculateCurrentScore(numFullLines);
+                markRows(0, mostBottomLine);
 
                 if (mostBottomLine != HEIGHT - 1 && gravity) {
+                    gravityTriggerd = grid.collapse(mostBottomLine);
 
-                    allPoints = getPoints();
-
-                    for (int i = 0; i < WIDTH; i++) {
-                        int numOfEmpty = 0;
-
-                        for (int j = mostBottomLine + 1; j < HEIGHT; j++) {
-                            if (!allPoints.contains(new Point(i, j))) {
-                                numOfEmpty++;
-                            } else {
-                                break;
-                            }
-                        }
-
-                        if (numOfEmpty != 0) {
-                            gravityTriggerd = false;
-                            for (int j = 0; j < points.size(); j++) {
-                                if (points.get(j).getX() == i && points.get(j).getY() <= mostBottomLine) {
-                                    points.get(j).modY(numOfEmpty);
-                                    gravityTriggerd = true;
-                                }
-                            }
-                        }
+                    if (gravityTriggerd) {
+                        markRows(0, HEIGHT - 1);
                     }
                 }
             }
@@ -335,6 +585,15 @@ class Board {
         level = numClearedLines / 10;
 
         updateSpeed();
+
+        // The ghost of the current shape lands lower once the lines are removed
+        if (numClearedLines != lines) {
+            markShape();
+        }
+
+        if (metrics != null) {
+            metrics.record(Metrics.REMOVE_LINES, System.nanoTime() - start);
+        }
     }
 
     /**
@@ -359,23 +618,32 @@ class Board {
     }
 
     /**
-     * Updates the time (milliseconds) per block on screen according to the level
-     * and this source 
+     * Updates the time (milliseconds) per block on screen and the drop speed
+     * according to the level and this source 
      * https://gaming.stackexchange.com/questions/13057/tetris-difficulty
+     * Past level 29, the drop speed doubles every level up to MAX_G.
      */
     private void updateSpeed() {
-        double baseFrame = 48.0;
+        int frames;
 
         if (-1 < level && level < 9) {
-            timePerBlock = (int) (((baseFrame - (level * 5.0)) / 60.0) * 1000.0);
+            frames = 48 - level * 5;
         } else if (level == 9) {
-            timePerBlock = (int) ((6.0 / 60.0) * 1000.0);
+            frames = 6;
         } else if (9 < level && level < 19) {
-            timePerBlock = (int) (((8.0 - ((13.0 - 1.0) / 3.0)) / 60.0) * 1000.0);
+            frames = 4;
         } else if (18 < level && level < 29) {
-            timePerBlock = (int) ((2.0 / 60.0) * 1000.0);
+            frames = 2;
         } else {
-            timePerBlock = (int) ((1.0 / 60.0) * 1000.0);
+            frames = 1;
+        }
+
+        timePerBlock = frames * 1000 / 60;
+
+        if (level < 30) {
+            dropSpeed = CELL / frames;
+        } else {
+            dropSpeed = CELL * Math.min(MAX_G, 1 << Math.min(level - 29, 5));
         }
     }
 
@@ -388,17 +656,72 @@ class Board {
     public List<Point> getPoints() {
         List<Point> points = new ArrayList<Point>();
 
-        points.addAll(this.points);
-        points.addAll(currentShape.getPoints());
+        for (int i = 0; i < HEIGHT; i++) {
+            int row = grid.getRow(i);
+
+            while (row != 0) {
+                int j = Integer.numberOfTrailingZeros(row);
+                points.add(new Point(j, i, grid.getType(j, i)));
+                row &= row - 1;
+            }
+        }
 
-        Set<Point> set = new HashSet<Point>();
-        set.addAll(points);
-        points.clear();
-        points.addAll(set);
+        points.addAll(currentShape.getPoints());
 
         return points;
     }
 
+    /**
+     * Getter for the content of a cell
+     * 
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @return the type of shape in the cell (including the current shape), with
+     *         the GHOST flag if the ghost of the current shape is in the cell, 0
+     *         if the cell is empty
+     */
+    public int getCell(int x, int y) {
+        int type = grid.getType(x, y);
+
+        if (type == 0) {
+            for (Point i : currentShape.getPoints()) {
+                if (i.getX() == x && i.getY() == y) {
+                    return currentShape.getType();
+                }
+            }
+
+            int dx = x - currentShape.getX();
+            int dy = y - ghostY;
+
+            if (dx >= 0 && dx < 4 && dy >= 0 && dy < 4 && (currentShape.getMask() & (1 << (dy * 4 + dx))) != 0) {
+                return currentShape.getType() | GHOST;
+            }
+        }
+
+        return type;
+    }
+
+    /**
+     * Occupies a cell of the fallen shapes, used to set up a board for testing
+     * and benchmarks
+     * 
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @param type the type of shape of the cell, 0 to empty the cell
+     */
+    void setCell(int x, int y, int type) {
+        markShape();
+
+        if (type != 0) {
+            grid.set(x, y, type);
+        } else {
+            grid.clear(x, y);
+        }
+
+        dirty[y] |= 1 << x;
+        markShape();
+    }
+
     /**
      * Print the board and the value of some methods, used for testing this class
      */
@@ -406,14 +729,10 @@ class Board {
         StringBuffer sb = new StringBuffer();
 
         sb.append(toString());
-        sb.append("--- Border ---\n");
-        sb.append("Left " + closeToLeftBorder() + "\n");
-        sb.append("Right " + closeToRightBorder() + "\n");
-        sb.append("Bottom " + closeToBottomBorder() + "\n");
-        sb.append("--- Points ---\n");
-        sb.append("Left " + hasPointsLeft() + "\n");
-        sb.append("Right " + hasPointsRight() + "\n");
-        sb.append("Bottom " + hasPointsDown() + "\n");
+        sb.append("--- Can move ---\n");
+        sb.append("Left " + canMove(-1, 0) + "\n");
+        sb.append("Right " + canMove(1, 0) + "\n");
+        sb.append("Bottom " + canMove(0, 1) + "\n");
         sb.append("--- Rotate ---\n");
         sb.append(canRotate());
 
@@ -429,6 +748,96 @@ class Board {
         return numClearedLines;
     }
 
+    /**
+     * Getter of grid, used by searches
+     * 
+     * @return the cells of the fallen shapes
+     */
+    BitBoard getGrid() {
+        return grid;
+    }
+
+    /**
+     * Getter of generator, used to copy the board
+     * 
+     * @return the generator choosing the type of the shapes
+     */
+    PieceGenerator getGenerator() {
+        return generator;
+    }
+
+    /**
+     * Getter of currentShape, used by searches
+     * 
+     * @return the shape that is currently moving
+     */
+    Shape getCurrentShape() {
+        return currentShape;
+    }
+
+    /**
+     * Getter for the hash of the position, the settled cells and the current
+     * shape. The hash of the settled cells is kept up to date by the grid when
+     * shapes are locked and lines are cleared.
+     * 
+     * @return the Zobrist hash of the position, see Zobrist
+     */
+    public long getHash() {
+        long hash = grid.getHash() ^ Zobrist.shape(currentShape.getType(), currentShape.getRotation(), currentShape.getX(), currentShape.getY());
+
+        return gravity ? hash ^ Zobrist.GRAVITY : hash;
+    }
+
+    /**
+     * Getter for the type of a next shape
+     * 
+     * @param index the position of the shape in the queue (0 is created next),
+     *              smaller than PREVIEW
+     * @return the type of the shape
+     */
+    public int getNext(int index) {
+        return next[(nextHead + index) % PREVIEW];
+    }
+
+    /**
+     * Getter of hold
+     * 
+     * @return the type of the held shape, 0 if none
+     */
+    public int getHold() {
+        return hold;
+    }
+
+    /**
+     * Getter of holdUsed
+     * 
+     * @return true if a shape was already held since the current shape was
+     *         created, the shape can then not be held
+     */
+    public boolean getHoldUsed() {
+        return holdUsed;
+    }
+
+    /**
+     * Getter of numShapes
+     * 
+     * @return the number of shapes created since the start of the game, it
+     *         changes when the current shape is locked
+     */
+    public int getNumShapes() {
+        return numShapes;
+    }
+
+    /**
+     * Setter of metrics, the copies of the board are not measured
+     * 
+     * @param metrics the timers of moveDown(), removeLines() and the rotations,
+     *                null to stop measuring
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Getter of gravity
      * 
@@ -474,6 +883,16 @@ class Board {
         return timePerBlock;
     }
 
+    /**
+     * Getter of dropSpeed
+     * 
+     * @return the number of cells the current shape falls per frame, in 1/CELL
+     *         of a cell
+     */
+    public int getDropSpeed() {
+        return dropSpeed;
+    }
+
     /**
      * Getter of score
      * 
@@ -486,8 +905,10 @@ class Board {
     @Override
     public String toString() {
         int[][] board = new int[HEIGHT][WIDTH];
-        for (Point i : points) {
-            board[i.getY()][i.getX()] = i.getType();
+        for (int i = 0; i < HEIGHT; i++) {
+            for (int j = 0; j < WIDTH; j++) {
+                board[i][j] = grid.getType(j, i);
+            }
         }
 
         for (Point i : currentShape.getPoints()) {
@@ -0,0 +1,317 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * The class <b>BoardBenchmark</b> measures the time and the memory allocated by
+ * the methods of the Board class that are called the most while playing. Every
+ * benchmark is run on boards created from fixed seeds, at different fill
+ * levels, so the results can be compared between two versions of the code.
+ * 
+ * Every benchmark is first run for a second without being measured, to let the
+ * JIT compile the code. The measured iterations then go on past the given
+ * number until the error is under 5% of the mean, up to 5 times that number.
+ * A benchmark still above it is marked with a warning, its results are noisy.
+ * 
+ * Run it with: java BoardBenchmark [iterations] [boards per iteration]
+ * 
+ * @author Benoît Jeaurond
+ */
+class BoardBenchmark {
+
+    /**
+     * Percentage of the cells under the spawn area that are filled
+     */
+    private static final int[] FILL_LEVELS = { 0, 25, 50, 75 };
+
+    /**
+     * Rows left empty at the top so the new shapes can move
+     */
+    private static final int SPAWN_ROWS = 4;
+
+    /**
+     * Finder used by the placement search benchmark
+     */
+    private static PlacementFinder finder = new PlacementFinder();
+
+    /**
+     * Buffer used by the saved game benchmarks
+     */
+    private static ByteBuffer save = ByteBuffer.allocate(SaveGame.BUFFER_SIZE);
+
+    /**
+     * Time spent running a benchmark before it is measured, in nanoseconds
+     */
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+
+    /**
+     * Largest error accepted, as a fraction of the mean, and the factor of
+     * the number of iterations done at most to reach it
+     */
+    private static final double MAX_ERROR = 0.05;
+    private static final int MAX_ITERATIONS_FACTOR = 5;
+
+    /**
+     * Minimum number of measured iterations and number of boards used by each
+     * iteration
+     */
+    private static int iterations = 10, boards = 20000;
+
+    /**
+     * Used to read the number of bytes allocated by the current thread
+     */
+    private static com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Bytes allocated by the operations of the last iteration
+     */
+    private static long iterationBytes;
+
+    /**
+     * Main method.
+     */
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            iterations = Integer.parseInt(args[0]);
+        }
+
+        if (args.length > 1) {
+            boards = Integer.parseInt(args[1]);
+        }
+
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        System.out.println(String.format("%-22s %5s %12s %10s %10s", "benchmark", "fill", "ns/op", "error", "B/op"));
+
+        for (int fill : FILL_LEVELS) {
+            run("moveDown", fill, seed -> filledBoard(seed, fill), Board::moveDown);
+            run("moveLeft", fill, seed -> filledBoard(seed, fill), Board::moveLeft);
+            run("moveRight", fill, seed -> filledBoard(seed, fill), Board::moveRight);
+            run("rotate", fill, seed -> filledBoard(seed, fill), Board::rotate);
+            run("getDropDistance", fill, seed -> filledBoard(seed, fill), Board::getDropDistance);
+            run("hardDrop", fill, seed -> filledBoard(seed, fill), Board::hardDrop);
+            run("createCurrentShape", fill, seed -> filledBoard(seed, fill), Board::createCurrentShape);
+            run("getPoints", fill, seed -> filledBoard(seed, fill), Board::getPoints);
+            run("findPlacements", fill, seed -> filledBoard(seed, fill), finder::find);
+            run("fork", fill, seed -> filledBoard(seed, fill), board -> new Board(board));
+            run("getState", fill, seed -> filledBoard(seed, fill), Board::getState);
+            run("save encode", fill, seed -> filledBoard(seed, fill), BoardBenchmark::encode);
+            run("save decode", fill, seed -> filledBoard(seed, fill), BoardBenchmark::decode);
+        }
+
+        run("removeLines single", 50, seed -> linesBoard(seed, 1), Board::removeLines);
+        run("removeLines double", 50, seed -> linesBoard(seed, 2), Board::removeLines);
+        run("removeLines triple", 50, seed -> linesBoard(seed, 3), Board::removeLines);
+        run("removeLines tetris", 50, seed -> linesBoard(seed, 4), Board::removeLines);
+        run("removeLines cascade", 50, BoardBenchmark::cascadeBoard, Board::removeLines);
+    }
+
+    /**
+     * Runs a benchmark and prints its results. Every operation is done on a new
+     * board, the boards are created before the time is measured.
+     * 
+     * @param name the name of the benchmark
+     * @param fill the fill level of the boards, only printed
+     * @param setup creates the board of a seed
+     * @param operation the measured operation
+     */
+    private static void run(String name, int fill, LongFunction<Board> setup, Consumer<Board> operation) {
+        Board[] batch = new Board[boards];
+        double[] results = new double[iterations * MAX_ITERATIONS_FACTOR];
+        long allocated = 0;
+        int count = 0;
+        double mean = 0, error = 0;
+
+        // Not measured, to let the JIT compile the code
+        for (long warmup = System.nanoTime(); System.nanoTime() - warmup < WARMUP_NANOS;) {
+            runIteration(batch, setup, operation);
+        }
+
+        while (count < results.length && (count < iterations || error > mean * MAX_ERROR)) {
+            results[count++] = (double) runIteration(batch, setup, operation) / batch.length;
+            allocated += iterationBytes;
+
+            mean = mean(results, count);
+            error = deviation(results, count, mean);
+        }
+
+        String bytesPerOp = threads != null ? String.format("%.1f", (double) allocated / ((long) count * boards)) : "n/a";
+        String warning = error > mean * MAX_ERROR ? String.format("  warning: error of %.0f%% after %d iterations", error * 100 / mean, count) : "";
+
+        System.out.println(String.format("%-22s %4d%% %12.1f %10.1f %10s", name, fill, mean, error, bytesPerOp) + warning);
+    }
+
+    /**
+     * Runs one iteration of a benchmark, and keeps the bytes allocated by its
+     * operations in iterationBytes
+     * 
+     * @param batch the array filled with the boards of the iteration
+     * @param setup creates the board of a seed
+     * @param operation the measured operation
+     * @return the time taken by the operations, in nanoseconds
+     */
+    private static long runIteration(Board[] batch, LongFunction<Board> setup, Consumer<Board> operation) {
+        for (int j = 0; j < batch.length; j++) {
+            batch[j] = setup.apply(j);
+        }
+
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+
+        for (Board j : batch) {
+            operation.accept(j);
+        }
+
+        long time = System.nanoTime() - start;
+        iterationBytes = allocatedBytes() - bytes;
+
+        return time;
+    }
+
+    /**
+     * Computes the mean of the first results
+     * 
+     * @param results the time per operation of every iteration
+     * @param count the number of results used
+     * @return the mean
+     */
+    private static double mean(double[] results, int count) {
+        double sum = 0;
+
+        for (int i = 0; i < count; i++) {
+            sum += results[i];
+        }
+
+        return sum / count;
+    }
+
+    /**
+     * Computes the standard deviation of the first results
+     * 
+     * @param results the time per operation of every iteration
+     * @param count the number of results used
+     * @param mean the mean of the results
+     * @return the standard deviation, 0 with a single result
+     */
+    private static double deviation(double[] results, int count, double mean) {
+        double variance = 0;
+
+        for (int i = 0; i < count; i++) {
+            variance += (results[i] - mean) * (results[i] - mean);
+        }
+
+        return count > 1 ? Math.sqrt(variance / (count - 1)) : 0;
+    }
+
+    /**
+     * Writes a board as a saved game, from a copy of its state like the game
+     * does
+     * 
+     * @param board the board to be written
+     */
+    private static void encode(Board board) {
+        save.clear();
+        SaveGame.write(board.getState(), save);
+    }
+
+    /**
+     * Reads a saved board, the board is written before being read, but its
+     * decoding takes most of the time
+     * 
+     * @param board the board to be written and read
+     */
+    private static void decode(Board board) {
+        save.clear();
+        SaveGame.write(board.getState(), save);
+        save.flip();
+
+        try {
+            SaveGame.read(save);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Getter for the number of bytes allocated by the current thread
+     * 
+     * @return the number of allocated bytes, 0 if it can not be read
+     */
+    private static long allocatedBytes() {
+        return threads != null ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Creates a board where some cells under the spawn area are randomly filled,
+     * without any full line
+     * 
+     * @param seed the seed of the board
+     * @param fill the percentage of cells filled
+     * @return the new board
+     */
+    private static Board filledBoard(long seed, int fill) {
+        Board board = new Board(seed);
+        Random rand = new Random(seed);
+
+        for (int i = SPAWN_ROWS; i < Board.HEIGHT; i++) {
+            int hole = rand.nextInt(Board.WIDTH);
+
+            for (int j = 0; j < Board.WIDTH; j++) {
+                if (j != hole && rand.nextInt(100) < fill) {
+                    board.setCell(j, i, rand.nextInt(7) + 1);
+                }
+            }
+        }
+
+        return board;
+    }
+
+    /**
+     * Creates a half filled board with full lines at the bottom
+     * 
+     * @param seed the seed of the board
+     * @param lines the number of full lines
+     * @return the new board
+     */
+    private static Board linesBoard(long seed, int lines) {
+        Board board = filledBoard(seed, 50);
+
+        for (int i = Board.HEIGHT - lines; i < Board.HEIGHT; i++) {
+            for (int j = 0; j < Board.WIDTH; j++) {
+                board.setCell(j, i, 1);
+            }
+        }
+
+        return board;
+    }
+
+    /**
+     * Creates a board where clearing a line makes cells fall with gravity and
+     * complete another line
+     * 
+     * @param seed the seed of the board
+     * @return the new board
+     */
+    private static Board cascadeBoard(long seed) {
+        Board board = filledBoard(seed, 50);
+        int hole = (int) (seed % Board.WIDTH);
+
+        for (int j = 0; j < Board.WIDTH; j++) {
+            // The bottom line has a hole filled by the cell above the full line
+            board.setCell(j, Board.HEIGHT - 1, j != hole ? 2 : 0);
+            board.setCell(j, Board.HEIGHT - 2, 3);
+        }
+
+        board.setCell(hole, Board.HEIGHT - 3, 4);
+
+        return board;
+    }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * The class <b>BoardDiff</b> keeps the cells of a board that changed between
+ * two calls of Board.diff(). The cells are kept as <b>CellKey</b> keys holding
+ * the new type of the cell (0 if it was emptied). A board has a single diff
+ * consumer, see Board.diff().
+ * 
+ * @author Benoît Jeaurond
+ */
+class BoardDiff {
+
+    /**
+     * Keys of the changed cells, only the first size are used
+     */
+    private int[] cells;
+
+    /**
+     * Number of changed cells
+     */
+    private int size;
+
+    /**
+     * Constructor of the BoardDiff class
+     */
+    public BoardDiff() {
+        this.cells = new int[Board.WIDTH * Board.HEIGHT];
+        clear();
+    }
+
+    /**
+     * Removes every change
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds a changed cell
+     * 
+     * @param key the key of the cell with its new type
+     */
+    public void addCell(int key) {
+        cells[size++] = key;
+    }
+
+    /**
+     * Getter for size
+     * 
+     * @return the number of changed cells
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter for a changed cell
+     * 
+     * @param index the index of the change, from 0 to size() - 1
+     * @return the key of the cell with its new type, see CellKey
+     */
+    public int getCell(int index) {
+        return cells[index];
+    }
+
+    @Override
+    public String toString() {
+        String str = "";
+
+        for (int i = 0; i < size; i++) {
+            str += CellKey.toString(cells[i]) + "\n";
+        }
+
+        return str;
+    }
+
+}
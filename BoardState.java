@@ -0,0 +1,238 @@
+/**
+ * The class <b>BoardState</b> is an immutable copy of everything a board
+ * contains: the cells of the fallen shapes, the current, next and held shapes,
+ * the generator of the shapes after them and the stats of the game. A state can be kept in an undo
+ * stack, shared between threads or restored on any board.
+ * 
+ * @author Benoît Jeaurond
+ */
+final class BoardState {
+
+    /**
+     * Copy of the cells of the fallen shapes, never modified
+     */
+    private final BitBoard grid;
+
+    /**
+     * Copy of the generator, never used to create shapes
+     */
+    private final PieceGenerator generator;
+
+    /**
+     * The current shape
+     */
+    private final int shapeType, shapeX, shapeY, shapeRotation;
+
+    /**
+     * Types of the next shapes, in order, never modified
+     */
+    private final int[] next;
+
+    /**
+     * Type of the held shape (0 if none), and true if the current shape can't
+     * be held
+     */
+    private final int hold;
+    private final boolean holdUsed;
+
+    /**
+     * Stats about the game
+     */
+    private final int numClearedLines, level, score, timePerBlock, numShapes;
+
+    /**
+     * State of the game and of the gravity feature
+     */
+    private final boolean gameOver, gravity;
+
+    /**
+     * Constructor of the BoardState class copying a board
+     * 
+     * @param board the board to be copied
+     */
+    public BoardState(Board board) {
+        Shape shape = board.getCurrentShape();
+
+        this.grid = new BitBoard(board.getGrid());
+        this.generator = board.getGenerator().copy();
+        this.shapeType = shape.getType();
+        this.shapeX = shape.getX();
+        this.shapeY = shape.getY();
+        this.shapeRotation = shape.getRotation();
+        this.next = new int[Board.PREVIEW];
+        this.hold = board.getHold();
+        this.holdUsed = board.getHoldUsed();
+        this.numClearedLines = board.getNumClearedLines();
+        this.level = board.getLevel();
+        this.score = board.getScore();
+        this.timePerBlock = board.getTimePerBlock();
+        this.numShapes = board.getNumShapes();
+        this.gameOver = board.getGameOver();
+        this.gravity = board.getGravity();
+
+        for (int i = 0; i < next.length; i++) {
+            next[i] = board.getNext(i);
+        }
+    }
+
+    /**
+     * Constructor of the BoardState class from its values, used to read a saved
+     * game. The grid, the generator and the array are kept, not copied.
+     * 
+     * @param grid the cells of the fallen shapes
+     * @param generator the generator of the shapes after the next shapes
+     * @param shape the current shape
+     * @param next the types of the next shapes, in order
+     * @param hold the type of the held shape, 0 if none
+     * @param holdUsed true if the current shape can't be held
+     * @param numClearedLines the total number of cleared lines
+     * @param level the level
+     * @param score the score
+     * @param timePerBlock the time for each block to be on the screen
+     * @param numShapes the number of shapes created
+     * @param gameOver true if the game is finished
+     * @param gravity true if gravity is on
+     */
+    BoardState(BitBoard grid, PieceGenerator generator, Shape shape, int[] next, int hold, boolean holdUsed,
+            int numClearedLines, int level, int score, int timePerBlock, int numShapes, boolean gameOver,
+            boolean gravity) {
+        this.grid = grid;
+        this.generator = generator;
+        this.shapeType = shape.getType();
+        this.shapeX = shape.getX();
+        this.shapeY = shape.getY();
+        this.shapeRotation = shape.getRotation();
+        this.next = next;
+        this.hold = hold;
+        this.holdUsed = holdUsed;
+        this.numClearedLines = numClearedLines;
+        this.level = level;
+        this.score = score;
+        this.timePerBlock = timePerBlock;
+        this.numShapes = numShapes;
+        this.gameOver = gameOver;
+        this.gravity = gravity;
+    }
+
+    /**
+     * Getter of grid
+     * 
+     * @return the cells of the fallen shapes, do not modify it
+     */
+    BitBoard getGrid() {
+        return grid;
+    }
+
+    /**
+     * Getter of generator
+     * 
+     * @return a new copy of the generator of the next shapes
+     */
+    public PieceGenerator getGenerator() {
+        return generator.copy();
+    }
+
+    /**
+     * Creates the current shape of the state
+     * 
+     * @return a new shape at the position of the current shape
+     */
+    public Shape createShape() {
+        Shape shape = new Shape(shapeType);
+        shape.setPosition(shapeX, shapeY, shapeRotation);
+
+        return shape;
+    }
+
+    /**
+     * Getter for the type of a next shape
+     * 
+     * @param index the position of the shape in the queue (0 is created next)
+     * @return the type of the shape
+     */
+    public int getNext(int index) {
+        return next[index];
+    }
+
+    /**
+     * Getter of hold
+     * 
+     * @return the type of the held shape, 0 if none
+     */
+    public int getHold() {
+        return hold;
+    }
+
+    /**
+     * Getter of holdUsed
+     * 
+     * @return true if the current shape can't be held
+     */
+    public boolean getHoldUsed() {
+        return holdUsed;
+    }
+
+    /**
+     * Getter of numClearedLines
+     * 
+     * @return the total number of cleared lines
+     */
+    public int getNumClearedLines() {
+        return numClearedLines;
+    }
+
+    /**
+     * Getter of level
+     * 
+     * @return the level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Getter of score
+     * 
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Getter of timePerBlock
+     * 
+     * @return the time for each block to be on the screen
+     */
+    public int getTimePerBlock() {
+        return timePerBlock;
+    }
+
+    /**
+     * Getter of numShapes
+     * 
+     * @return the number of shapes created
+     */
+    public int getNumShapes() {
+        return numShapes;
+    }
+
+    /**
+     * Getter of gameOver
+     * 
+     * @return true if the game is finished
+     */
+    public boolean getGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Getter of gravity
+     * 
+     * @return true if gravity is on
+     */
+    public boolean getGravity() {
+        return gravity;
+    }
+
+}
@@ -0,0 +1,341 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The class <b>Bot</b> is a player that searches for the best placement of the
+ * current shape. Every placement of the current shape is evaluated in parallel
+ * in a ForkJoinPool. The value of a placement is the value of the best
+ * placement of the next shape, down to a number of shapes. The next shapes are
+ * taken from the preview, so the search only averages over the 7 types of shape
+ * when it goes past the preview, with a depth larger than Board.PREVIEW + 1.
+ * The bots of the game and of the simulator search 1 or 2 shapes, which are
+ * always known, so they never average. The boards at the end of the search are
+ * valued with the heights, holes and bumpiness of the columns.
+ * The value of the next shapes of a board is kept in a transposition table, so
+ * it is not searched again when the board is reached by other placements.
+ * 
+ * Weights from https://codemyroad.wordpress.com/2013/04/14/tetris-ai-the-near-perfect-player/
+ * 
+ * @author Benoît Jeaurond
+ */
+class Bot implements MovePolicy {
+
+    /**
+     * Weights of the features of a board
+     */
+    private static final double HEIGHT_WEIGHT = -0.510066, LINES_WEIGHT = 0.760666, HOLES_WEIGHT = -0.35663, BUMPINESS_WEIGHT = -0.184483;
+
+    /**
+     * Value of a placement ending the game
+     */
+    private static final double LOST = -1e9;
+
+    /**
+     * Shapes locked in these rows end the game
+     */
+    private static final int DANGER_ROWS = 2;
+
+    /**
+     * Number of entries and of locks of the transposition table
+     */
+    private static final int TABLE_SIZE = 1 << 20, TABLE_STRIPES = 64;
+
+    /**
+     * Search objects of every thread, a finder and a board for each shape searched
+     */
+    private static final ThreadLocal<Search> SEARCHES = new ThreadLocal<Search>();
+
+    /**
+     * Pool of threads evaluating the placements
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Number of shapes searched, 1 only looks at the current shape
+     */
+    private int depth;
+
+    /**
+     * Values of the next shapes of the boards already searched
+     */
+    private TranspositionTable table;
+
+    /**
+     * Constructor of the Bot class
+     * 
+     * @param pool the pool of threads evaluating the placements
+     * @param depth the number of shapes searched, 1 only looks at the current
+     *              shape
+     */
+    public Bot(ForkJoinPool pool, int depth) {
+        this.pool = pool;
+        this.depth = depth;
+        this.table = new TranspositionTable(TABLE_SIZE, TABLE_STRIPES);
+    }
+
+    @Override
+    public void place(Board board, SplittableRandom rand) {
+        byte[] path = findPath(board);
+
+        if (path != null) {
+            PlacementFinder.apply(board, path);
+        } else {
+            MovePolicy.drop(board);
+        }
+    }
+
+    /**
+     * Finds the best placement of the current shape of a board
+     * 
+     * @param board the board
+     * @return the moves leading to the best placement, or null if the shape
+     *         can't be placed
+     */
+    public byte[] findPath(Board board) {
+        PlacementFinder finder = new PlacementFinder();
+        int size = finder.find(board);
+
+        if (size == 0) {
+            return null;
+        }
+
+        BitBoard grid = board.getGrid();
+        boolean gravity = board.getGravity();
+        int type = board.getCurrentShape().getType();
+        int[] next = new int[Board.PREVIEW];
+        double[] values = new double[size];
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[size];
+
+        for (int i = 0; i < next.length; i++) {
+            next[i] = board.getNext(i);
+        }
+
+        for (int i = 0; i < size; i++) {
+            int placement = finder.getPlacement(i);
+            int index = i;
+
+            tasks[i] = new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    values[index] = getSearch().evaluate(grid, type, placement, gravity, depth - 1, table, next, 0);
+                }
+            };
+        }
+
+        pool.invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        int best = 0;
+        for (int i = 1; i < size; i++) {
+            if (values[i] > values[best]) {
+                best = i;
+            }
+        }
+
+        return finder.getPath(best);
+    }
+
+    /**
+     * Getter of table
+     * 
+     * @return the values of the boards already searched
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Getter for the search objects of the current thread
+     * 
+     * @return the search objects, created the first time
+     */
+    private Search getSearch() {
+        Search search = SEARCHES.get();
+
+        if (search == null || search.finders.length < depth) {
+            search = new Search(depth);
+            SEARCHES.set(search);
+        }
+
+        return search;
+    }
+
+    /**
+     * Values a board at the end of the search
+     * 
+     * @param grid the board
+     * @return the value of the board, higher is better
+     */
+    static double evaluate(BitBoard grid) {
+        int height = 0;
+        int bumpiness = 0;
+
+        for (int i = 0; i < Board.WIDTH; i++) {
+            height += grid.getHeight(i);
+
+            if (i > 0) {
+                bumpiness += Math.abs(grid.getHeight(i) - grid.getHeight(i - 1));
+            }
+        }
+
+        return HEIGHT_WEIGHT * height + HOLES_WEIGHT * grid.countHoles() + BUMPINESS_WEIGHT * bumpiness;
+    }
+
+    /**
+     * The class <b>Search</b> keeps the objects used by a thread to search, so
+     * they are created once per thread.
+     */
+    private static class Search {
+
+        /**
+         * Finder and board of every shape searched
+         */
+        private PlacementFinder[] finders;
+        private BitBoard[] grids;
+
+        /**
+         * Constructor of the Search class
+         * 
+         * @param depth the number of shapes searched
+         */
+        private Search(int depth) {
+            this.finders = new PlacementFinder[depth];
+            this.grids = new BitBoard[depth];
+
+            for (int i = 0; i < depth; i++) {
+                finders[i] = new PlacementFinder();
+                grids[i] = new BitBoard();
+            }
+        }
+
+        /**
+         * Values a placement
+         * 
+         * @param grid the board before the shape is placed
+         * @param type the type of shape
+         * @param placement the position of the shape
+         * @param gravity true if the gravity feature is on
+         * @param depth the number of shapes left to search after this one
+         * @param table the values of the next shapes of the boards already searched
+         * @param next the types of the next shapes known in advance
+         * @param index the position in next of the shape after this one
+         * @return the value of the placement, higher is better
+         */
+        private double evaluate(BitBoard grid, int type, int placement, boolean gravity, int depth, TranspositionTable table, int[] next, int index) {
+            int y = Placement.getY(placement);
+            int mask = Shape.getMask(type, Placement.getRotation(placement));
+
+            // The game is over if the shape is locked at the top
+            if (y + Integer.numberOfTrailingZeros(mask) / 4 < DANGER_ROWS) {
+                return LOST;
+            }
+
+            BitBoard child = grids[depth];
+            child.copy(grid);
+            child.place(mask, Placement.getX(placement), y, type);
+
+            int lines = clearLines(child, gravity);
+            double value = LINES_WEIGHT * lines;
+
+            if (depth == 0) {
+                return value + Bot.evaluate(child);
+            }
+
+            long hash = child.getHash() ^ (gravity ? Zobrist.GRAVITY : 0);
+
+            // The value also depends on the known shapes that are searched
+            for (int i = index; i < next.length && i < index + depth; i++) {
+                hash ^= Zobrist.next(i - index, next[i]);
+            }
+
+            double cached = table.get(hash, depth);
+
+            if (!Double.isNaN(cached)) {
+                return value + cached;
+            }
+
+            if (index < next.length) {
+                double best = best(child, next[index], gravity, depth, table, next, index);
+                table.put(hash, depth, best);
+
+                return value + best;
+            }
+
+            // Average of the best placement of each type of shape
+            double total = 0;
+
+            for (int i = 1; i <= 7; i++) {
+                total += best(child, i, gravity, depth, table, next, index);
+            }
+
+            table.put(hash, depth, total / 7);
+
+            return value + total / 7;
+        }
+
+        /**
+         * Finds the value of the best placement of a shape
+         * 
+         * @param grid the board before the shape is placed
+         * @param type the type of shape
+         * @param gravity true if the gravity feature is on
+         * @param depth the number of shapes left to search, this one included
+         * @param table the values of the next shapes of the boards already searched
+         * @param next the types of the next shapes known in advance
+         * @param index the position in next of this shape
+         * @return the value of the best placement, LOST if the shape can't be placed
+         */
+        private double best(BitBoard grid, int type, boolean gravity, int depth, TranspositionTable table, int[] next, int index) {
+            PlacementFinder finder = finders[depth];
+            int size = finder.find(grid, type, Shape.SPAWN_X, Shape.getSpawnY(type), 0);
+            double best = LOST;
+
+            // The next shape uses the finder and board of the next depth, so this finder is left as is
+            for (int i = 0; i < size; i++) {
+                best = Math.max(best, evaluate(grid, type, finder.getPlacement(i), gravity, depth - 1, table, next, index + 1));
+            }
+
+            return best;
+        }
+
+        /**
+         * Clears the full lines like the board does
+         * 
+         * @param grid the board
+         * @param gravity true if the gravity feature is on
+         * @return the number of cleared lines
+         */
+        private int clearLines(BitBoard grid, boolean gravity) {
+            int lines = 0;
+            boolean gravityTriggerd;
+
+            do {
+                gravityTriggerd = false;
+                int fullLines = grid.clearFullRows();
+
+                if (fullLines != 0) {
+                    int mostBottomLine = 31 - Integer.numberOfLeadingZeros(fullLines);
+                    lines += Integer.bitCount(fullLines);
+
+                    if (mostBottomLine != Board.HEIGHT - 1 && gravity) {
+                        gravityTriggerd = grid.collapse(mostBottomLine);
+                    }
+                }
+            } while (gravityTriggerd);
+
+            return lines;
+        }
+
+    }
+
+}
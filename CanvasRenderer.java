@@ -0,0 +1,194 @@
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+
+/**
+ * The class <b>CanvasRenderer</b> draws the board on a Canvas. Every look a
+ * cell can have is rendered once into an image (a sprite), so drawing the
+ * board only copies the sprites of the cells that changed since the last
+ * render. It uses a lot less memory than a node per cell.
+ * 
+ * @author Benoît Jeaurond
+ */
+class CanvasRenderer implements Renderer {
+
+    /**
+     * Value of a cell that was never rendered
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Space between the cells, same as the gaps of the grid style
+     */
+    private static final int GAP = 2;
+
+    /**
+     * The size of a cell
+     */
+    private int pixel;
+
+    /**
+     * The canvas and the pane adding the padding and background around it
+     */
+    private Canvas canvas;
+    private StackPane pane;
+
+    /**
+     * Sprites of empty cells, one per row because of the gradient
+     */
+    private Image[] emptySprites;
+
+    /**
+     * Sprites of each type of shape (index 0 is unused), then of each type of
+     * ghost (at the type with the GHOST flag), for every palette
+     */
+    private Map<Map<Integer, Color>, Image[]> shapeSprites;
+
+    /**
+     * Sprites of the palette used for the last render
+     */
+    private Image[] sprites;
+
+    /**
+     * Type of shape currently shown by every cell (0 if empty)
+     */
+    private int[] shown;
+
+    /**
+     * Colors used for the last render
+     */
+    private Map<Integer, Color> palette;
+
+    /**
+     * Board of the last render, and the cells that changed since then
+     */
+    private Board board;
+    private BoardDiff diff;
+
+    /**
+     * Constructor of the CanvasRenderer class, renders the sprites of the empty
+     * cells and of every palette
+     * 
+     * @param pixel the size of a cell
+     * @param colors the palettes that can be used to render the board
+     */
+    public CanvasRenderer(int pixel, Map<Integer, Map<Integer, Color>> colors) {
+        this.pixel = pixel;
+        this.canvas = new Canvas(Board.WIDTH * pixel + GAP * (Board.WIDTH - 1), Board.HEIGHT * pixel + GAP * (Board.HEIGHT - 1));
+        this.pane = new StackPane(canvas);
+        this.shapeSprites = new IdentityHashMap<Map<Integer, Color>, Image[]>();
+        this.emptySprites = new Image[Board.HEIGHT];
+        this.shown = new int[Board.WIDTH * Board.HEIGHT];
+        this.diff = new BoardDiff();
+
+        pane.getStyleClass().add("grid");
+        pane.getStyleClass().add("background");
+
+        CellNode cell = new CellNode(pixel);
+
+        for (int i = 0; i < Board.HEIGHT; i++) {
+            cell.empty(i);
+            emptySprites[i] = createSprite(cell);
+        }
+
+        for (Map<Integer, Color> i : colors.values()) {
+            Image[] images = new Image[2 * Board.GHOST];
+
+            for (int j = 1; j < 8; j++) {
+                cell.fill(i.get(j));
+                images[j] = createSprite(cell);
+                cell.ghost(i.get(j));
+                images[j | Board.GHOST] = createSprite(cell);
+            }
+
+            shapeSprites.put(i, images);
+        }
+
+        for (int i = 0; i < shown.length; i++) {
+            shown[i] = UNKNOWN;
+        }
+    }
+
+    @Override
+    public void render(Board board, Map<Integer, Color> palette) {
+        board.diff(diff);
+
+        if (board != this.board || palette != this.palette) {
+            // Every filled cell changes color if the palette changed
+            if (palette != this.palette) {
+                for (int i = 0; i < shown.length; i++) {
+                    if (shown[i] != 0) {
+                        shown[i] = UNKNOWN;
+                    }
+                }
+            }
+
+            this.board = board;
+            this.palette = palette;
+            this.sprites = shapeSprites.get(palette);
+
+            // The diff of a new board does not know what was shown before, so every cell is checked
+            for (int i = 0; i < Board.HEIGHT; i++) {
+                for (int j = 0; j < Board.WIDTH; j++) {
+                    paintCell(j, i, board.getCell(j, i));
+                }
+            }
+        } else {
+            for (int i = 0; i < diff.size(); i++) {
+                int key = diff.getCell(i);
+                paintCell(CellKey.getX(key), CellKey.getY(key), CellKey.getType(key));
+            }
+        }
+    }
+
+    @Override
+    public Node getNode() {
+        return pane;
+    }
+
+    /**
+     * Renders a cell into an image with a transparent background
+     * 
+     * @param cell the cell to render
+     * @return the image of the cell
+     */
+    private WritableImage createSprite(CellNode cell) {
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+
+        return cell.snapshot(parameters, null);
+    }
+
+    /**
+     * Changes the look of a cell if its content changed
+     * 
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @param type the type of shape of the cell (with the GHOST flag for the
+     *             ghost), 0 if it is empty
+     */
+    private void paintCell(int x, int y, int type) {
+        int index = y * Board.WIDTH + x;
+
+        if (shown[index] != type) {
+            GraphicsContext gc = canvas.getGraphicsContext2D();
+            double left = x * (pixel + GAP);
+            double top = y * (pixel + GAP);
+
+            // Empty sprites are see-through, so the old sprite is erased first
+            gc.clearRect(left, top, pixel, pixel);
+            gc.drawImage(type != 0 ? sprites[type] : emptySprites[y], left, top);
+
+            shown[index] = type;
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * The class <b>CellKey</b> packs a cell of the Tetris board into a single
+ * integer so cells can be compared, hashed and stored in sets or maps without
+ * creating <b>Point</b> objects. The x coordinate is kept in the first 8 bits,
+ * the y coordinate in the next 8 bits and the type of shape in the bits above.
+ * 
+ * Two keys are at the same position if their position() are equal, which is
+ * consistent with how two points are equal.
+ * 
+ * @author Benoît Jeaurond
+ */
+final class CellKey {
+
+    /**
+     * Mask of the bits keeping the coordinates of a key
+     */
+    public static final int POSITION_MASK = 0xFFFF;
+
+    /**
+     * This class only contains static methods
+     */
+    private CellKey() {
+    }
+
+    /**
+     * Packs the coordinates of a cell
+     * 
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @return the key of the cell, with a type of 0
+     */
+    public static int of(int x, int y) {
+        return (x & 0xFF) | (y & 0xFF) << 8;
+    }
+
+    /**
+     * Packs the coordinates and the type of a cell
+     * 
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @param type the type of shape of the cell
+     * @return the key of the cell
+     */
+    public static int of(int x, int y, int type) {
+        return of(x, y) | type << 16;
+    }
+
+    /**
+     * Packs a point
+     * 
+     * @param point the point to pack
+     * @return the key of the point
+     */
+    public static int of(Point point) {
+        return of(point.getX(), point.getY(), point.getType());
+    }
+
+    /**
+     * Getter for the x coordinate of a key
+     * 
+     * @param key the key of the cell
+     * @return the x coordinate of the cell
+     */
+    public static int getX(int key) {
+        return key & 0xFF;
+    }
+
+    /**
+     * Getter for the y coordinate of a key
+     * 
+     * @param key the key of the cell
+     * @return the y coordinate of the cell
+     */
+    public static int getY(int key) {
+        return (key >>> 8) & 0xFF;
+    }
+
+    /**
+     * Getter for the type of a key
+     * 
+     * @param key the key of the cell
+     * @return the type of shape of the cell
+     */
+    public static int getType(int key) {
+        return key >>> 16;
+    }
+
+    /**
+     * Removes the type of a key, keys at the same position are then equal
+     * 
+     * @param key the key of the cell
+     * @return the key of the cell with a type of 0
+     */
+    public static int position(int key) {
+        return key & POSITION_MASK;
+    }
+
+    /**
+     * Getter for the index of a key in an array of WIDTH * HEIGHT cells
+     * 
+     * @param key the key of the cell
+     * @return the index of the cell, y * WIDTH + x
+     */
+    public static int index(int key) {
+        return getY(key) * Board.WIDTH + getX(key);
+    }
+
+    /**
+     * Spreads the bits of a key, used by hash sets and maps of keys
+     * 
+     * @param key the key of the cell
+     * @return the hash of the key
+     */
+    public static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gives a readable version of a key
+     * 
+     * @param key the key of the cell
+     * @return the key as a string
+     */
+    public static String toString(int key) {
+        return "Cell X: " + getX(key) + " Y: " + getY(key) + " Type: " + getType(key);
+    }
+
+}
@@ -0,0 +1,122 @@
+import javafx.scene.Group;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Arc;
+import javafx.scene.shape.ArcType;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Rectangle;
+
+/**
+ * The class <b>CellNode</b> is the group of shapes drawing one cell of the
+ * board: a square with shades on its borders, and a glossy effect when the
+ * cell is empty. The cells of the ghost are faded.
+ * 
+ * @author Benoît Jeaurond
+ */
+class CellNode extends Group {
+
+    /**
+     * Shapes used for the cell
+     */
+    private Rectangle square, topRec;
+    private Polygon topShade, bottomShade;
+    private Arc halfCircle;
+
+    /**
+     * Constructor of the CellNode class
+     * 
+     * @param pixel the size of the cell
+     */
+    public CellNode(int pixel) {
+        // Shade's thickness
+        double shadeThick = (double) pixel / 7.5;
+
+        square = new Rectangle(pixel, pixel);
+
+        // The top and left part of the shade
+        topShade = new Polygon(
+            0.0, 0.0, 
+            (double) pixel, 0.0, 
+            (double) pixel - shadeThick, shadeThick,
+            shadeThick, shadeThick, 
+            shadeThick, (double) pixel - shadeThick, 
+            0.0, (double) pixel 
+        );
+
+        // The bottom and right part of the shade
+        bottomShade = new Polygon(
+            0.0, (double) pixel, 
+            (double) pixel, (double) pixel,
+            (double) pixel, 0.0, 
+            (double) pixel - shadeThick, shadeThick, 
+            (double) pixel - shadeThick, (double) pixel - shadeThick,
+            shadeThick, (double) pixel - shadeThick 
+        );
+        bottomShade.setFill(Color.BLACK);
+
+        // Used to create the glossy effect
+        topRec = new Rectangle(pixel, pixel / 2.65);
+        topRec.setOpacity(0.05);
+        topRec.setFill(Color.WHITE);
+
+        halfCircle = new Arc((double) pixel / 2.0, (double) pixel / 2.0, (double) pixel / 2.0, (double) pixel / 8.0, 0.0f, 180.0f);
+        halfCircle.setOpacity(0.05);
+        halfCircle.setFill(Color.WHITE);
+        halfCircle.setType(ArcType.ROUND);
+        halfCircle.setRotate(180.0);
+
+        getChildren().addAll(square, topShade, bottomShade, halfCircle, topRec);
+    }
+
+    /**
+     * Shows the cell as a part of a shape
+     * 
+     * @param color the color of the shape
+     */
+    public void fill(Color color) {
+        topShade.setOpacity(0.5);
+        topShade.setFill(Color.WHITE);
+        bottomShade.setOpacity(0.5);
+
+        square.setFill(color);
+        square.setOpacity(1.0);
+
+        halfCircle.setVisible(false);
+        topRec.setVisible(false);
+    }
+
+    /**
+     * Shows the cell as a part of the ghost, where the current shape would land
+     * 
+     * @param color the color of the shape
+     */
+    public void ghost(Color color) {
+        topShade.setOpacity(0.25);
+        topShade.setFill(Color.WHITE);
+        bottomShade.setOpacity(0.25);
+
+        square.setFill(color);
+        square.setOpacity(0.3);
+
+        halfCircle.setVisible(false);
+        topRec.setVisible(false);
+    }
+
+    /**
+     * Shows the cell as empty
+     * 
+     * @param row the row of the cell, the cells get darker towards the bottom
+     */
+    public void empty(int row) {
+        topShade.setOpacity(0.1);
+        topShade.setFill(Color.BLACK);
+        bottomShade.setOpacity(0.25);
+
+        // Colors the square in a sort of gradient
+        square.setFill(Color.GRAY);
+        square.setOpacity((55.0 / 62.0 - ((double) row + 30.0) / ((double) Board.HEIGHT + 50)));
+
+        halfCircle.setVisible(true);
+        topRec.setVisible(true);
+    }
+
+}
@@ -0,0 +1,37 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The class <b>DiskSync</b> writes the changes of a folder to the disk. Forcing
+ * a file only writes its content, the files created, renamed or deleted in a
+ * folder can still be lost after a power loss until the folder itself is
+ * forced. Used by the files that must survive a power loss, the high scores and
+ * the saved game.
+ * 
+ * @author Benoît Jeaurond
+ */
+final class DiskSync {
+
+    /**
+     * This class only contains static methods
+     */
+    private DiskSync() {
+    }
+
+    /**
+     * Writes a folder to the disk, so the files created, renamed or deleted in
+     * it are not lost after a power loss
+     * 
+     * @param directory the folder
+     */
+    public static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Folders can't be opened on some systems, which keep renames without it
+        }
+    }
+
+}
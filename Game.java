@@ -0,0 +1,299 @@
+import java.util.SplittableRandom;
+
+/**
+ * The class <b>Game</b> runs the rules of a game one fixed step (tick) at a
+ * time, without any JavaFX class. Every tick applies the moves of the input
+ * queue, then gravity, then the lock delay. A tick is a frame: gravity
+ * accumulates the drop speed of the level in fractions of a cell, and the
+ * whole cells are fallen at once, many per tick at the highest levels.
+ * 
+ * @author Benoît Jeaurond
+ */
+class Game {
+
+    /**
+     * Number of ticks per second and length of a tick
+     */
+    public static final int TICKS_PER_SECOND = 60;
+    public static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+
+    /**
+     * Number of ticks a shape stays on the floor or on other shapes before it
+     * is locked
+     */
+    public static final int LOCK_DELAY = 30;
+
+    /**
+     * Moves of the keys of the input queue, as bit flags
+     */
+    public static final int LEFT = 1, RIGHT = 2, DOWN = 4, ROTATE = 8, ROTATE_LEFT = 16, ROTATE_HALF = 32, HARD_DROP = 64, HOLD = 128;
+
+    private Board board;
+
+    /**
+     * Player placing the shapes instead of the moves pressed, null if none
+     */
+    private MovePolicy policy;
+    private SplittableRandom rand;
+
+    /**
+     * Keys pressed and released by the player
+     */
+    private InputQueue input;
+
+    /**
+     * Fall accumulated for gravity, in 1/Board.CELL of a cell
+     */
+    private int gravityCells;
+
+    /**
+     * Number of ticks the current shape has been grounded
+     */
+    private int lockTicks;
+
+    /**
+     * Number of ticks since the start of the game
+     */
+    private long ticks;
+
+    /**
+     * Replay where the game is recorded, null if it is not recorded
+     */
+    private Replay recording;
+
+    /**
+     * State of the gravity feature in the recording
+     */
+    private boolean recordedGravity;
+
+    /**
+     * Constructor of the Game class
+     * 
+     * @param board the board being played
+     */
+    public Game(Board board) {
+        this(board, new InputQueue(InputQueue.DEFAULT_DAS, InputQueue.DEFAULT_ARR));
+    }
+
+    /**
+     * Constructor of the Game class
+     * 
+     * @param board the board being played
+     * @param input the keys pressed and released by the player
+     */
+    public Game(Board board, InputQueue input) {
+        this.board = board;
+        this.input = input;
+    }
+
+    /**
+     * Advances the game by one tick
+     * 
+     * @return true if the board changed and needs to be painted
+     */
+    public boolean tick() {
+        int moves = input.poll();
+
+        return step(moves, input.getShift());
+    }
+
+    /**
+     * Advances the game by one tick with some moves
+     * 
+     * @param moves the moves other than left and right
+     * @param shift the number of cells to move right (left if negative)
+     * @return true if the board changed and needs to be painted
+     */
+    boolean step(int moves, int shift) {
+        if (board.getGameOver()) {
+            return false;
+        }
+
+        ticks++;
+        gravityCells += board.getDropSpeed();
+
+        if (recording != null && board.getGravity() != recordedGravity) {
+            recordedGravity = board.getGravity();
+            recording.addGravity(ticks, recordedGravity);
+        }
+
+        // The player places one shape every time the shape would move down
+        if (policy != null) {
+            if (gravityCells < Board.CELL) {
+                return false;
+            }
+
+            gravityCells = 0;
+            policy.place(board, rand);
+
+            return true;
+        }
+
+        if (recording != null && (moves != 0 || shift != 0)) {
+            recording.addMoves(ticks, moves, shift);
+        }
+
+        int shapes = board.getNumShapes();
+        boolean changed = applyMoves(moves, shift);
+
+        if (gravityCells >= Board.CELL) {
+            changed |= board.fall(gravityCells / Board.CELL) > 0;
+            gravityCells %= Board.CELL;
+        }
+
+        if (board.getNumShapes() != shapes) {
+            // Locked by a move, the new shape starts from nothing
+            gravityCells = 0;
+            lockTicks = 0;
+        } else if (board.isGrounded()) {
+            // Gravity does not accumulate while the shape can't fall
+            gravityCells = 0;
+
+            if (++lockTicks >= LOCK_DELAY) {
+                board.moveDown();
+                lockTicks = 0;
+                changed = true;
+            }
+        } else {
+            lockTicks = 0;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Applies the moves of a tick
+     * 
+     * @param moves the moves other than left and right
+     * @param shift the number of cells to move right (left if negative)
+     * @return true if there was a move
+     */
+    private boolean applyMoves(int moves, int shift) {
+        if ((moves & HOLD) != 0) {
+            board.holdShape();
+        }
+
+        for (int i = 0; i < shift; i++) {
+            board.moveRight();
+        }
+        for (int i = 0; i > shift; i--) {
+            board.moveLeft();
+        }
+        if ((moves & ROTATE) != 0) {
+            board.rotate();
+        }
+        if ((moves & ROTATE_LEFT) != 0) {
+            board.rotateLeft();
+        }
+        if ((moves & ROTATE_HALF) != 0) {
+            board.rotate180();
+        }
+        if ((moves & HARD_DROP) != 0) {
+            board.hardDrop();
+        } else if ((moves & DOWN) != 0) {
+            board.moveDown();
+        }
+
+        return moves != 0 || shift != 0;
+    }
+
+    /**
+     * Getter of board
+     * 
+     * @return the board being played
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Getter of input
+     * 
+     * @return the keys pressed and released by the player
+     */
+    public InputQueue getInput() {
+        return input;
+    }
+
+    /**
+     * Setter for policy
+     * 
+     * @param policy the player placing the shapes, null to use the moves pressed
+     * @param rand random numbers given to the player
+     */
+    public void setPolicy(MovePolicy policy, SplittableRandom rand) {
+        if (recording != null && (policy != null) != (this.policy != null)) {
+            recording.addAutoplay(ticks + 1, policy != null);
+        }
+
+        this.policy = policy;
+        this.rand = rand;
+    }
+
+    /**
+     * Records the game from the next tick
+     * 
+     * @param recording the replay where the game is recorded, null to stop
+     *                  recording
+     */
+    public void record(Replay recording) {
+        if (recording != null && policy != null) {
+            recording.addAutoplay(ticks + 1, true);
+        }
+
+        this.recording = recording;
+        this.recordedGravity = recording != null && recording.getGravity();
+    }
+
+    /**
+     * Getter of recording
+     * 
+     * @return the replay where the game is recorded, null if it is not recorded
+     */
+    public Replay getRecording() {
+        return recording;
+    }
+
+    /**
+     * Goes back to a previous point of the game, used by replays
+     * 
+     * @param state the state of the board
+     * @param ticks the number of ticks since the start of the game
+     * @param gravityCells the fall accumulated for gravity
+     * @param lockTicks the number of ticks the current shape has been grounded
+     */
+    void restore(BoardState state, long ticks, int gravityCells, int lockTicks) {
+        board.restore(state);
+        this.ticks = ticks;
+        this.gravityCells = gravityCells;
+        this.lockTicks = lockTicks;
+    }
+
+    /**
+     * Getter of gravityCells
+     * 
+     * @return the fall accumulated for gravity, in 1/Board.CELL of a cell
+     */
+    int getGravityCells() {
+        return gravityCells;
+    }
+
+    /**
+     * Getter of lockTicks
+     * 
+     * @return the number of ticks the current shape has been grounded
+     */
+    int getLockTicks() {
+        return lockTicks;
+    }
+
+    /**
+     * Getter of ticks
+     * 
+     * @return the number of ticks since the start of the game
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+}
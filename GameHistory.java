@@ -0,0 +1,144 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The class <b>GameHistory</b> stores the results of finished games in a file,
+ * one fixed width record per game, appended through memory mapped buffers. No
+ * object is created per game and the operating system writes the pages in the
+ * background, so millions of games can be stored while they are simulated.
+ * 
+ * The file starts with a header (MAGIC, VERSION and the number of records),
+ * followed by the records. A record contains, in order: the seed (long), the
+ * score, the level, the number of cleared lines and of shapes (ints) and the
+ * duration of the game in nanoseconds (long). The file grows by chunks of
+ * CHUNK_RECORDS records, so it can be larger than the records it contains.
+ * 
+ * @author Benoît Jeaurond
+ */
+class GameHistory implements AutoCloseable {
+
+    /**
+     * First bytes of a history file ("THST") and version of the format
+     */
+    public static final int MAGIC = 0x54485354, VERSION = 1;
+
+    /**
+     * Sizes of the header and of a record, in bytes
+     */
+    public static final int HEADER_SIZE = 16, RECORD_SIZE = 32;
+
+    /**
+     * Offsets of the fields within a record
+     */
+    public static final int SEED = 0, SCORE = 8, LEVEL = 12, LINES = 16, SHAPES = 20, NANOS = 24;
+
+    /**
+     * Number of records of each mapped chunk of the file
+     */
+    public static final int CHUNK_RECORDS = 1 << 16;
+
+    /**
+     * Offset of the number of records in the header
+     */
+    private static final int COUNT = 8;
+
+    private FileChannel channel;
+
+    /**
+     * The header and the chunks of records mapped so far
+     */
+    private MappedByteBuffer header;
+    private List<MappedByteBuffer> chunks;
+
+    /**
+     * Number of records in the file
+     */
+    private long count;
+
+    /**
+     * Constructor of the GameHistory class, opens a file and adds the next
+     * records after the records it already contains
+     * 
+     * @param path the path of the file, created if it does not exist
+     * @throws IOException if the file can't be opened or is not a history
+     */
+    public GameHistory(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.chunks = new ArrayList<MappedByteBuffer>();
+
+        boolean created = channel.size() == 0;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+
+        if (created) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putLong(COUNT, 0);
+        } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException(path + " is not a game history");
+        }
+
+        this.count = header.getLong(COUNT);
+    }
+
+    /**
+     * Adds the record of a finished game, can be called by many threads
+     * 
+     * @param seed the seed of the game
+     * @param board the board at the end of the game
+     * @param nanos the time taken by the game in nanoseconds
+     * @throws IOException if the file can't grow
+     */
+    public synchronized void append(long seed, Board board, long nanos) throws IOException {
+        int chunk = (int) (count / CHUNK_RECORDS);
+
+        while (chunks.size() <= chunk) {
+            long position = HEADER_SIZE + (long) chunks.size() * CHUNK_RECORDS * RECORD_SIZE;
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, position, (long) CHUNK_RECORDS * RECORD_SIZE));
+        }
+
+        ByteBuffer buffer = chunks.get(chunk);
+        int offset = (int) (count % CHUNK_RECORDS) * RECORD_SIZE;
+
+        buffer.putLong(offset + SEED, seed);
+        buffer.putInt(offset + SCORE, board.getScore());
+        buffer.putInt(offset + LEVEL, board.getLevel());
+        buffer.putInt(offset + LINES, board.getNumClearedLines());
+        buffer.putInt(offset + SHAPES, board.getNumShapes());
+        buffer.putLong(offset + NANOS, nanos);
+
+        // The record is counted once it is complete
+        header.putLong(COUNT, ++count);
+    }
+
+    /**
+     * Getter of count
+     * 
+     * @return the number of records in the file
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * Writes the mapped records to the disk and closes the file
+     * 
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (MappedByteBuffer i : chunks) {
+            i.force();
+        }
+        header.force();
+
+        channel.close();
+    }
+
+}
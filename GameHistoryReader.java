@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The class <b>GameHistoryReader</b> reads the records of a file written by
+ * GameHistory. The file is mapped in memory and every field is read where it
+ * is, so the records can be read in order or at any index without creating
+ * objects. The histograms of every field are computed in a single pass.
+ * 
+ * Run it with: java GameHistoryReader [history file]
+ * 
+ * @author Benoît Jeaurond
+ */
+class GameHistoryReader implements AutoCloseable {
+
+    /**
+     * Fields of a record that have a histogram, see aggregate()
+     */
+    public static final int SCORE = 0, LEVEL = 1, LINES = 2, SHAPES = 3, NANOS = 4, FIELDS = 5;
+
+    /**
+     * Names of the fields that have a histogram
+     */
+    private static final String[] NAMES = { "score", "level", "lines", "shapes", "nanos" };
+
+    private FileChannel channel;
+
+    /**
+     * Chunks of records, mapped the same way as GameHistory maps them
+     */
+    private MappedByteBuffer[] chunks;
+
+    /**
+     * Number of records in the file when it was opened
+     */
+    private long count;
+
+    /**
+     * Constructor of the GameHistoryReader class
+     * 
+     * @param path the path of the file
+     * @throws IOException if the file can't be read or is not a history
+     */
+    public GameHistoryReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, GameHistory.HEADER_SIZE);
+
+        if (header.getInt(0) != GameHistory.MAGIC || header.getInt(4) != GameHistory.VERSION) {
+            channel.close();
+            throw new IOException(path + " is not a game history");
+        }
+
+        this.count = header.getLong(8);
+        this.chunks = new MappedByteBuffer[(int) ((count + GameHistory.CHUNK_RECORDS - 1) / GameHistory.CHUNK_RECORDS)];
+
+        for (int i = 0; i < chunks.length; i++) {
+            long position = GameHistory.HEADER_SIZE + (long) i * GameHistory.CHUNK_RECORDS * GameHistory.RECORD_SIZE;
+            long records = Math.min(GameHistory.CHUNK_RECORDS, count - (long) i * GameHistory.CHUNK_RECORDS);
+
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, records * GameHistory.RECORD_SIZE);
+        }
+    }
+
+    /**
+     * Getter of count
+     * 
+     * @return the number of records
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Reads a field of a record
+     * 
+     * @param index the index of the record, from 0 to size() - 1
+     * @return the seed of the game
+     */
+    public long getSeed(long index) {
+        return chunk(index).getLong(offset(index) + GameHistory.SEED);
+    }
+
+    /**
+     * Reads a field of a record
+     * 
+     * @param index the index of the record, from 0 to size() - 1
+     * @return the score at the end of the game
+     */
+    public int getScore(long index) {
+        return chunk(index).getInt(offset(index) + GameHistory.SCORE);
+    }
+
+    /**
+     * Reads a field of a record
+     * 
+     * @param index the index of the record, from 0 to size() - 1
+     * @return the level at the end of the game
+     */
+    public int getLevel(long index) {
+        return chunk(index).getInt(offset(index) + GameHistory.LEVEL);
+    }
+
+    /**
+     * Reads a field of a record
+     * 
+     * @param index the index of the record, from 0 to size() - 1
+     * @return the number of cleared lines
+     */
+    public int getLines(long index) {
+        return chunk(index).getInt(offset(index) + GameHistory.LINES);
+    }
+
+    /**
+     * Reads a field of a record
+     * 
+     * @param index the index of the record, from 0 to size() - 1
+     * @return the number of shapes created
+     */
+    public int getShapes(long index) {
+        return chunk(index).getInt(offset(index) + GameHistory.SHAPES);
+    }
+
+    /**
+     * Reads a field of a record
+     * 
+     * @param index the index of the record, from 0 to size() - 1
+     * @return the time taken by the game in nanoseconds
+     */
+    public long getNanos(long index) {
+        return chunk(index).getLong(offset(index) + GameHistory.NANOS);
+    }
+
+    /**
+     * Computes the histogram of every field in a single pass over the records
+     * 
+     * @return the histograms, indexed by SCORE, LEVEL, LINES, SHAPES and NANOS
+     */
+    public Histogram[] aggregate() {
+        Histogram[] histograms = new Histogram[FIELDS];
+
+        for (int i = 0; i < FIELDS; i++) {
+            histograms[i] = new Histogram();
+        }
+
+        for (MappedByteBuffer chunk : chunks) {
+            for (int offset = 0; offset < chunk.limit(); offset += GameHistory.RECORD_SIZE) {
+                histograms[SCORE].add(chunk.getInt(offset + GameHistory.SCORE));
+                histograms[LEVEL].add(chunk.getInt(offset + GameHistory.LEVEL));
+                histograms[LINES].add(chunk.getInt(offset + GameHistory.LINES));
+                histograms[SHAPES].add(chunk.getInt(offset + GameHistory.SHAPES));
+                histograms[NANOS].add(chunk.getLong(offset + GameHistory.NANOS));
+            }
+        }
+
+        return histograms;
+    }
+
+    /**
+     * Getter for the name of a field
+     * 
+     * @param field SCORE, LEVEL, LINES, SHAPES or NANOS
+     * @return the name of the field
+     */
+    public static String getName(int field) {
+        return NAMES[field];
+    }
+
+    /**
+     * Finds the chunk of a record
+     */
+    private MappedByteBuffer chunk(long index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + count);
+        }
+
+        return chunks[(int) (index / GameHistory.CHUNK_RECORDS)];
+    }
+
+    /**
+     * Finds the offset of a record within its chunk
+     */
+    private static int offset(long index) {
+        return (int) (index % GameHistory.CHUNK_RECORDS) * GameHistory.RECORD_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Main method, prints the histograms of every field of a history file.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java GameHistoryReader [history file]");
+            return;
+        }
+
+        try (GameHistoryReader reader = new GameHistoryReader(Paths.get(args[0]))) {
+            long start = System.nanoTime();
+            Histogram[] histograms = reader.aggregate();
+            long nanos = System.nanoTime() - start;
+
+            System.out.println(reader.size() + " games read in " + String.format("%.3f", nanos / 1e9) + " s");
+
+            for (int i = 0; i < FIELDS; i++) {
+                System.out.println(String.format("%-7s %s", getName(i), histograms[i]));
+            }
+        }
+    }
+
+}
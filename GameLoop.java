@@ -0,0 +1,114 @@
+import javafx.animation.AnimationTimer;
+
+/**
+ * The class <b>GameLoop</b> drives a game from the pulses of JavaFX. The time
+ * between two pulses is accumulated and spent in fixed ticks, so the game runs
+ * at the same pace whatever the frame rate, and the board is painted at most
+ * once per pulse, only if a tick changed it.
+ * 
+ * Based on https://gafferongames.com/post/fix_your_timestep/
+ * 
+ * @author Benoît Jeaurond
+ */
+class GameLoop extends AnimationTimer {
+
+    /**
+     * Maximum number of ticks run in one pulse, the time left after a long pause
+     * of the application is dropped instead of being caught up
+     */
+    private static final int MAX_TICKS = 5;
+
+    private Game game;
+
+    /**
+     * Paints the board
+     */
+    private Runnable painter;
+
+    /**
+     * Time of the last pulse (-1 before the first pulse) and time not spent in
+     * ticks yet, in nanoseconds
+     */
+    private long last, accumulator;
+
+    /**
+     * Timers of the frames and of the ticks, null if the loop is not measured
+     */
+    private Metrics metrics;
+
+    /**
+     * Constructor of the GameLoop class
+     * 
+     * @param painter paints the board after the ticks of a pulse
+     */
+    public GameLoop(Runnable painter) {
+        this.painter = painter;
+        this.last = -1;
+    }
+
+    @Override
+    public void start() {
+        // The time spent paused does not count
+        last = -1;
+        accumulator = 0;
+        super.start();
+    }
+
+    @Override
+    public void handle(long now) {
+        if (last < 0) {
+            last = now;
+            return;
+        }
+
+        if (metrics != null) {
+            metrics.record(Metrics.FRAME, now - last);
+        }
+
+        accumulator += now - last;
+        last = now;
+
+        boolean changed = false;
+        int ticks = 0;
+
+        while (accumulator >= Game.TICK_NANOS && ticks < MAX_TICKS) {
+            long start = metrics != null ? System.nanoTime() : 0;
+
+            changed |= game.tick();
+
+            if (metrics != null) {
+                metrics.record(Metrics.TICK, System.nanoTime() - start);
+            }
+            accumulator -= Game.TICK_NANOS;
+            ticks++;
+        }
+
+        if (ticks == MAX_TICKS) {
+            accumulator = Math.min(accumulator, Game.TICK_NANOS);
+        }
+
+        if (changed) {
+            painter.run();
+        }
+    }
+
+    /**
+     * Setter for game
+     * 
+     * @param game the game run by the loop
+     */
+    public void setGame(Game game) {
+        this.game = game;
+    }
+
+    /**
+     * Setter for metrics
+     * 
+     * @param metrics the timers of the frames and of the ticks, null to stop
+     *                measuring
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+}
@@ -0,0 +1,132 @@
+import java.util.Map;
+
+import javafx.scene.Node;
+import javafx.scene.layout.GridPane;
+import javafx.scene.paint.Color;
+
+/**
+ * The class <b>GridRenderer</b> draws the board in a GridPane. The nodes of
+ * every cell are created once, then only the fill and opacity of the cells
+ * whose content changed since the last render are updated.
+ * 
+ * @author Benoît Jeaurond
+ */
+class GridRenderer implements Renderer {
+
+    /**
+     * Value of a cell that was never rendered
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * The grid containing the cells
+     */
+    private GridPane grid;
+
+    /**
+     * Nodes of every cell, indexed by y * WIDTH + x
+     */
+    private CellNode[] cells;
+
+    /**
+     * Type of shape currently shown by every cell (0 if empty)
+     */
+    private int[] shown;
+
+    /**
+     * Colors used for the last render
+     */
+    private Map<Integer, Color> palette;
+
+    /**
+     * Board of the last render, and the cells that changed since then
+     */
+    private Board board;
+    private BoardDiff diff;
+
+    /**
+     * Constructor of the GridRenderer class, adds the nodes of every cell to the
+     * grid
+     * 
+     * @param grid the grid where the cells are added
+     * @param pixel the size of a cell
+     */
+    public GridRenderer(GridPane grid, int pixel) {
+        this.grid = grid;
+        this.cells = new CellNode[Board.WIDTH * Board.HEIGHT];
+        this.shown = new int[Board.WIDTH * Board.HEIGHT];
+        this.diff = new BoardDiff();
+
+        for (int i = 0; i < Board.HEIGHT; i++) {
+            for (int j = 0; j < Board.WIDTH; j++) {
+                int index = i * Board.WIDTH + j;
+
+                cells[index] = new CellNode(pixel);
+                shown[index] = UNKNOWN;
+
+                grid.add(cells[index], j, i);
+            }
+        }
+    }
+
+    @Override
+    public void render(Board board, Map<Integer, Color> palette) {
+        board.diff(diff);
+
+        if (board != this.board || palette != this.palette) {
+            // Every filled cell changes color if the palette changed
+            if (palette != this.palette) {
+                for (int i = 0; i < shown.length; i++) {
+                    if (shown[i] != 0) {
+                        shown[i] = UNKNOWN;
+                    }
+                }
+            }
+
+            this.board = board;
+            this.palette = palette;
+
+            // The diff of a new board does not know what was shown before, so every cell is checked
+            for (int i = 0; i < Board.HEIGHT; i++) {
+                for (int j = 0; j < Board.WIDTH; j++) {
+                    paintCell(j, i, board.getCell(j, i));
+                }
+            }
+        } else {
+            for (int i = 0; i < diff.size(); i++) {
+                int key = diff.getCell(i);
+                paintCell(CellKey.getX(key), CellKey.getY(key), CellKey.getType(key));
+            }
+        }
+    }
+
+    @Override
+    public Node getNode() {
+        return grid;
+    }
+
+    /**
+     * Changes the look of a cell if its content changed
+     * 
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @param type the type of shape of the cell (with the GHOST flag for the
+     *             ghost), 0 if it is empty
+     */
+    private void paintCell(int x, int y, int type) {
+        int index = y * Board.WIDTH + x;
+
+        if (shown[index] != type) {
+            if ((type & Board.GHOST) != 0) {
+                cells[index].ghost(palette.get(type & ~Board.GHOST));
+            } else if (type != 0) {
+                cells[index].fill(palette.get(type));
+            } else {
+                cells[index].empty(y);
+            }
+
+            shown[index] = type;
+        }
+    }
+
+}
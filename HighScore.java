@@ -0,0 +1,82 @@
+/**
+ * The class <b>HighScore</b> is the result of a finished game kept in the
+ * high score table.
+ * 
+ * @author Benoît Jeaurond
+ */
+final class HighScore implements Comparable<HighScore> {
+
+    /**
+     * Stats of the game
+     */
+    private final int score, level, lines;
+
+    /**
+     * Time the game ended, in milliseconds since 1970
+     */
+    private final long time;
+
+    /**
+     * Constructor of the HighScore class
+     * 
+     * @param score the score of the game
+     * @param level the level reached
+     * @param lines the number of cleared lines
+     * @param time the time the game ended, in milliseconds since 1970
+     */
+    public HighScore(int score, int level, int lines, long time) {
+        this.score = score;
+        this.level = level;
+        this.lines = lines;
+        this.time = time;
+    }
+
+    /**
+     * Getter of score
+     * 
+     * @return the score of the game
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Getter of level
+     * 
+     * @return the level reached
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Getter of lines
+     * 
+     * @return the number of cleared lines
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * Getter of time
+     * 
+     * @return the time the game ended, in milliseconds since 1970
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * The best scores come first, and the oldest of equal scores
+     */
+    @Override
+    public int compareTo(HighScore other) {
+        if (score != other.score) {
+            return Integer.compare(other.score, score);
+        }
+
+        return Long.compare(time, other.time);
+    }
+
+}
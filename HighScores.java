@@ -0,0 +1,361 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The class <b>HighScores</b> keeps the best scores on the disk, so they are
+ * not lost when the power is cut at any moment.
+ * 
+ * Every finished game is appended to a log file as a record with a CRC32
+ * checksum, and written to the disk before add() returns. A record cut by a
+ * power loss fails its checksum and is ignored, with everything after it.
+ * Every COMPACT_RECORDS records, the best TOP scores of the index file and of
+ * the log are written to a new index file, which replaces the old one with an
+ * atomic rename written to the disk before the old logs are deleted, and a
+ * new log is started. The logs are numbered: the index
+ * keeps the number of the first log it does not contain, so a log is never
+ * counted twice, even if the power is cut during a compaction. Loading then
+ * only reads the index and at most COMPACT_RECORDS records, whatever the
+ * number of games played.
+ * 
+ * @author Benoît Jeaurond
+ */
+class HighScores {
+
+    /**
+     * Number of scores kept, and number of records of a log before it is
+     * compacted into the index
+     */
+    public static final int TOP = 100, COMPACT_RECORDS = 64;
+
+    /**
+     * First bytes of the index file ("TSCO") and version of the format
+     */
+    private static final int MAGIC = 0x5453434F, VERSION = 1;
+
+    /**
+     * Size of a score and of a log record (a score and its checksum), in bytes
+     */
+    private static final int SCORE_SIZE = 20, RECORD_SIZE = SCORE_SIZE + 4;
+
+    /**
+     * Size of the header of the index file, in bytes
+     */
+    private static final int HEADER_SIZE = 20;
+
+    /**
+     * Folder of the index and of the logs
+     */
+    private Path directory;
+
+    /**
+     * The best scores in order, null until they are loaded
+     */
+    private List<HighScore> scores;
+
+    /**
+     * Number of the current log, and number of records it contains
+     */
+    private long log;
+    private int logRecords;
+
+    /**
+     * Constructor of the HighScores class, nothing is read until the scores are
+     * needed or load() is called
+     * 
+     * @param directory the folder of the files, created if needed
+     */
+    public HighScores(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the index and the logs, does nothing if they are already loaded
+     * 
+     * @throws IOException if the files can't be read
+     */
+    public synchronized void load() throws IOException {
+        if (scores != null) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+
+        List<HighScore> loaded = new ArrayList<HighScore>();
+        long first = readIndex(loaded);
+        long last = first;
+
+        // Logs older than the index were compacted but not deleted yet
+        deleteLogs(first);
+
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, "scores-*.log")) {
+            for (Path i : logs) {
+                last = Math.max(last, logNumber(i));
+            }
+        }
+
+        for (long i = first; i <= last; i++) {
+            int records = readLog(logPath(i), loaded);
+
+            if (i == last) {
+                logRecords = records;
+            }
+        }
+
+        Collections.sort(loaded);
+        scores = new ArrayList<HighScore>(loaded.subList(0, Math.min(TOP, loaded.size())));
+        log = last;
+
+        if (last > first || logRecords >= COMPACT_RECORDS) {
+            compact();
+        }
+    }
+
+    /**
+     * Adds the score of a finished game and writes it to the disk
+     * 
+     * @param board the board of the game
+     * @return the rank of the score (1 is the best), -1 if it is not in the TOP
+     *         scores
+     * @throws IOException if the score can't be written
+     */
+    public synchronized int add(Board board) throws IOException {
+        load();
+
+        HighScore score = new HighScore(board.getScore(), board.getLevel(), board.getNumClearedLines(), System.currentTimeMillis());
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        putScore(buffer, score);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, SCORE_SIZE);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(logPath(log), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Writes over a record cut by a power loss, if any
+            channel.position((long) logRecords * RECORD_SIZE);
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            channel.truncate((long) (logRecords + 1) * RECORD_SIZE);
+            channel.force(true);
+        }
+
+        // A new log is only kept after a power loss once its folder is written
+        if (logRecords == 0) {
+            DiskSync.forceDirectory(directory);
+        }
+
+        logRecords++;
+
+        int rank = Collections.binarySearch(scores, score);
+        rank = rank < 0 ? -rank - 1 : rank;
+
+        if (rank < TOP) {
+            scores.add(rank, score);
+
+            if (scores.size() > TOP) {
+                scores.remove(TOP);
+            }
+        }
+
+        if (logRecords >= COMPACT_RECORDS) {
+            compact();
+        }
+
+        return rank < TOP ? rank + 1 : -1;
+    }
+
+    /**
+     * Getter for the best scores
+     * 
+     * @param count the maximum number of scores
+     * @return the best scores in order
+     * @throws IOException if the scores can't be loaded
+     */
+    public synchronized List<HighScore> getTop(int count) throws IOException {
+        load();
+
+        return new ArrayList<HighScore>(scores.subList(0, Math.min(count, scores.size())));
+    }
+
+    /**
+     * Writes the best scores to a new index, which replaces the old index with
+     * an atomic rename, then starts a new log and deletes the old ones
+     */
+    private void compact() throws IOException {
+        long next = log + 1;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + scores.size() * SCORE_SIZE + 4);
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(next);
+        buffer.putInt(scores.size());
+
+        for (HighScore i : scores) {
+            putScore(buffer, i);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path temporary = directory.resolve("scores.idx.tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(temporary, directory.resolve("scores.idx"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        // The rename must be on the disk before the logs it contains are deleted
+        DiskSync.forceDirectory(directory);
+        deleteLogs(next);
+
+        log = next;
+        logRecords = 0;
+    }
+
+    /**
+     * Deletes the logs contained in the index
+     * 
+     * @param first the number of the first log not in the index
+     */
+    private void deleteLogs(long first) throws IOException {
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, "scores-*.log")) {
+            for (Path i : logs) {
+                if (logNumber(i) < first) {
+                    Files.delete(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the index file
+     * 
+     * @param loaded the list where the scores are added
+     * @return the number of the first log not in the index, 0 if there is no
+     *         valid index
+     */
+    private long readIndex(List<HighScore> loaded) throws IOException {
+        Path path = directory.resolve("scores.idx");
+
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+
+        if (buffer.remaining() < HEADER_SIZE + 4 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return 0;
+        }
+
+        long next = buffer.getLong();
+        int count = buffer.getInt();
+
+        if (count < 0 || count > TOP || buffer.limit() != HEADER_SIZE + count * SCORE_SIZE + 4) {
+            return 0;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.limit() - 4);
+
+        if (buffer.getInt(buffer.limit() - 4) != (int) crc.getValue()) {
+            return 0;
+        }
+
+        for (int i = 0; i < count; i++) {
+            loaded.add(getScore(buffer));
+        }
+
+        return next;
+    }
+
+    /**
+     * Reads the records of a log until the first record that is cut or fails
+     * its checksum
+     * 
+     * @param path the path of the log
+     * @param loaded the list where the scores are added
+     * @return the number of valid records
+     */
+    private int readLog(Path path, List<HighScore> loaded) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32 crc = new CRC32();
+        int records = 0;
+
+        while (buffer.remaining() >= RECORD_SIZE) {
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), SCORE_SIZE);
+
+            if (buffer.getInt(buffer.position() + SCORE_SIZE) != (int) crc.getValue()) {
+                break;
+            }
+
+            loaded.add(getScore(buffer));
+            buffer.getInt();
+            records++;
+        }
+
+        return records;
+    }
+
+    /**
+     * Writes a score in a buffer
+     */
+    private static void putScore(ByteBuffer buffer, HighScore score) {
+        buffer.putInt(score.getScore());
+        buffer.putInt(score.getLevel());
+        buffer.putInt(score.getLines());
+        buffer.putLong(score.getTime());
+    }
+
+    /**
+     * Reads a score from a buffer
+     */
+    private static HighScore getScore(ByteBuffer buffer) {
+        return new HighScore(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getLong());
+    }
+
+    /**
+     * Finds the path of a log from its number
+     */
+    private Path logPath(long number) {
+        return directory.resolve("scores-" + number + ".log");
+    }
+
+    /**
+     * Finds the number of a log from its path
+     */
+    private static long logNumber(Path path) {
+        String name = path.getFileName().toString();
+
+        try {
+            return Long.parseLong(name.substring("scores-".length(), name.length() - ".log".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+/**
+ * The class <b>Histogram</b> counts values in buckets whose width grows with
+ * the values, so any value from 0 to Long.MAX_VALUE is kept with a relative
+ * error under 2% in a fixed array. Percentiles, the mean, the minimum and the
+ * maximum are then read without keeping the values.
+ * 
+ * Based on http://hdrhistogram.org/
+ * 
+ * @author Benoît Jeaurond
+ */
+class Histogram {
+
+    /**
+     * Values under 2^BITS have their own bucket, larger values keep their BITS
+     * highest bits
+     */
+    private static final int BITS = 7;
+
+    /**
+     * Number of values in every bucket
+     */
+    private long[] counts;
+
+    /**
+     * Number of values, minimum, maximum and total of the values
+     */
+    private long count, min, max;
+    private double total;
+
+    /**
+     * Constructor of the Histogram class
+     */
+    public Histogram() {
+        this.counts = new long[(64 - BITS + 2) << (BITS - 1)];
+        this.min = Long.MAX_VALUE;
+        this.max = Long.MIN_VALUE;
+    }
+
+    /**
+     * Adds a value
+     * 
+     * @param value the value, negative values are counted as 0
+     */
+    public void add(long value) {
+        value = Math.max(value, 0);
+
+        counts[index(value)]++;
+        count++;
+        total += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds every value of another histogram
+     * 
+     * @param histogram the histogram to be added
+     */
+    public void add(Histogram histogram) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += histogram.counts[i];
+        }
+
+        count += histogram.count;
+        total += histogram.total;
+        min = Math.min(min, histogram.min);
+        max = Math.max(max, histogram.max);
+    }
+
+    /**
+     * Removes every value
+     */
+    public void clear() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    /**
+     * Finds a percentile
+     * 
+     * @param percent the percentage of values smaller than or equal to the
+     *                percentile, from 0 to 100
+     * @return the smallest value of the bucket of the percentile, within the
+     *         minimum and the maximum, 0 if there are no values
+     */
+    public long getPercentile(double percent) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * count));
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+
+            if (seen >= rank) {
+                return Math.min(Math.max(lowest(i), min), max);
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Getter of count
+     * 
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Getter of min
+     * 
+     * @return the smallest value, 0 if there are no values
+     */
+    public long getMin() {
+        return count > 0 ? min : 0;
+    }
+
+    /**
+     * Getter of max
+     * 
+     * @return the largest value, 0 if there are no values
+     */
+    public long getMax() {
+        return count > 0 ? max : 0;
+    }
+
+    /**
+     * Getter for the mean
+     * 
+     * @return the average of the values, 0 if there are no values
+     */
+    public double getMean() {
+        return count > 0 ? total / count : 0;
+    }
+
+    /**
+     * Getter for the count of a bucket, to draw the histogram
+     * 
+     * @param value a value of the bucket
+     * @return the number of values in the same bucket as the value
+     */
+    public long getCount(long value) {
+        return counts[index(Math.max(value, 0))];
+    }
+
+    /**
+     * Finds the bucket of a value
+     */
+    private static int index(long value) {
+        if (value < 1 << BITS) {
+            return (int) value;
+        }
+
+        // Keeps the BITS highest bits of the value
+        int shift = 63 - Long.numberOfLeadingZeros(value) - BITS + 1;
+
+        return (shift << (BITS - 1)) + (int) (value >>> shift);
+    }
+
+    /**
+     * Finds the smallest value of a bucket
+     */
+    private static long lowest(int index) {
+        if (index < 1 << BITS) {
+            return index;
+        }
+
+        int shift = (index >> (BITS - 1)) - 1;
+
+        return (long) (index - (shift << (BITS - 1))) << shift;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count %d  mean %.2f  min %d  p50 %d  p90 %d  p99 %d  p99.9 %d  max %d", count, getMean(), getMin(),
+                getPercentile(50), getPercentile(90), getPercentile(99), getPercentile(99.9), getMax());
+    }
+
+}
@@ -0,0 +1,229 @@
+/**
+ * The class <b>InputQueue</b> buffers the keys pressed and released by the
+ * player until the next tick of the game. The repeats sent by the operating
+ * system while a key is held are ignored: a held left or right key moves the
+ * shape once, then again after the delayed auto shift (DAS), then every auto
+ * repeat rate (ARR) ticks. A held down key moves the shape down every tick.
+ * Every event of a tick is combined into the moves of that tick, so they are
+ * applied as one update of the board.
+ * 
+ * Based on https://tetris.wiki/DAS
+ * 
+ * @author Benoît Jeaurond
+ */
+class InputQueue {
+
+    /**
+     * Default number of ticks before a held key repeats, and between repeats
+     */
+    public static final int DEFAULT_DAS = 10, DEFAULT_ARR = 2;
+
+    /**
+     * Flag of the events of released keys
+     */
+    private static final int RELEASE = 1 << 31;
+
+    /**
+     * Events waiting for the next tick, in a ring buffer
+     */
+    private int[] events;
+    private int head, size;
+
+    /**
+     * Moves of the keys held
+     */
+    private int held;
+
+    /**
+     * Horizontal move repeated while held (0 if none) and number of ticks it
+     * has been held
+     */
+    private int shiftMove, shiftTicks;
+
+    /**
+     * Number of ticks before a held key repeats, and between repeats (0 moves
+     * the shape to the wall at once)
+     */
+    private int das, arr;
+
+    /**
+     * Number of cells to move right (left if negative) on this tick
+     */
+    private int shift;
+
+    /**
+     * Constructor of the InputQueue class
+     * 
+     * @param das the number of ticks before a held key repeats
+     * @param arr the number of ticks between repeats, 0 to move to the wall
+     */
+    public InputQueue(int das, int arr) {
+        this.events = new int[64];
+        this.das = das;
+        this.arr = arr;
+    }
+
+    /**
+     * Adds the event of a pressed key
+     * 
+     * @param move the move of the key, see Game
+     */
+    public void press(int move) {
+        add(move);
+    }
+
+    /**
+     * Adds the event of a released key
+     * 
+     * @param move the move of the key, see Game
+     */
+    public void release(int move) {
+        add(move | RELEASE);
+    }
+
+    /**
+     * Adds an event. If too many keys are pressed between two ticks, a new
+     * press is dropped, but a release is always kept or its key would stay
+     * held: the oldest press is dropped instead.
+     */
+    private void add(int event) {
+        if (size == events.length) {
+            if ((event & RELEASE) == 0) {
+                return;
+            }
+
+            int index = 0;
+
+            while (index < size && (get(index) & RELEASE) != 0) {
+                index++;
+            }
+
+            // Only releases are left, in any order they release the same keys,
+            // and there are fewer keys than events so one of them is repeated
+            if (index == size) {
+                index = 0;
+
+                while (index < size - 1 && !isQueuedAfter(index, event)) {
+                    index++;
+                }
+            }
+
+            remove(index);
+        }
+
+        events[(head + size) % events.length] = event;
+        size++;
+    }
+
+    /**
+     * Getter for a waiting event
+     * 
+     * @param index the index of the event, 0 is the oldest
+     * @return the event
+     */
+    private int get(int index) {
+        return events[(head + index) % events.length];
+    }
+
+    /**
+     * Checks if a waiting event is repeated by a newer one
+     * 
+     * @param index the index of the event, 0 is the oldest
+     * @param event the event being added, newer than every waiting event
+     * @return true if the same event is waiting after it or is being added
+     */
+    private boolean isQueuedAfter(int index, int event) {
+        for (int i = index + 1; i < size; i++) {
+            if (get(i) == get(index)) {
+                return true;
+            }
+        }
+
+        return get(index) == event;
+    }
+
+    /**
+     * Removes a waiting event, the newer events are moved back
+     * 
+     * @param index the index of the event, 0 is the oldest
+     */
+    private void remove(int index) {
+        for (int i = index; i < size - 1; i++) {
+            events[(head + i) % events.length] = get(i + 1);
+        }
+
+        size--;
+    }
+
+    /**
+     * Consumes the events since the last tick and the repeats of the held keys
+     * 
+     * @return the moves to apply on this tick, without the left and right moves
+     *         given by getShift()
+     */
+    public int poll() {
+        int moves = 0;
+        boolean shifted = false;
+        shift = 0;
+
+        for (; size > 0; size--) {
+            int event = events[head];
+            int move = event & ~RELEASE;
+            head = (head + 1) % events.length;
+
+            if ((event & RELEASE) != 0) {
+                held &= ~move;
+
+                // Goes back to the other direction if it is still held
+                if (move == shiftMove) {
+                    shiftMove = held & (Game.LEFT | Game.RIGHT);
+                    shiftTicks = 0;
+                }
+            } else if ((held & move) == 0) {
+                held |= move;
+
+                if (move == Game.LEFT || move == Game.RIGHT) {
+                    shift += move == Game.LEFT ? -1 : 1;
+                    shiftMove = move;
+                    shiftTicks = 0;
+                    shifted = true;
+                } else {
+                    moves |= move;
+                }
+            }
+        }
+
+        if (shiftMove != 0 && !shifted && ++shiftTicks >= das) {
+            if (arr == 0) {
+                shift += shiftMove == Game.LEFT ? -Board.WIDTH : Board.WIDTH;
+            } else if ((shiftTicks - das) % arr == 0) {
+                shift += shiftMove == Game.LEFT ? -1 : 1;
+            }
+        }
+
+        return moves | (held & Game.DOWN);
+    }
+
+    /**
+     * Getter of shift
+     * 
+     * @return the number of cells to move right (left if negative) on this tick,
+     *         given by the last poll()
+     */
+    public int getShift() {
+        return shift;
+    }
+
+    /**
+     * Forgets every event and every held key
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+        held = 0;
+        shiftMove = 0;
+        shiftTicks = 0;
+        shift = 0;
+    }
+
+}
@@ -0,0 +1,201 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>IntSet</b> is a hash set of primitive integers, used to keep
+ * <b>CellKey</b> keys without boxing them. It uses open addressing with linear
+ * probing, so adding, removing and finding a key does not create any object
+ * unless the set has to grow.
+ * 
+ * The value -1 is used to mark free slots and can not be added to the set.
+ * 
+ * @author Benoît Jeaurond
+ */
+class IntSet {
+
+    /**
+     * Marks a free slot in the table
+     */
+    private static final int FREE = -1;
+
+    /**
+     * Slots of the set
+     */
+    private int[] keys;
+
+    /**
+     * Number of keys in the set
+     */
+    private int size;
+
+    /**
+     * Constructor of the IntSet class with a default capacity
+     */
+    public IntSet() {
+        this(16);
+    }
+
+    /**
+     * Constructor of the IntSet class specifying the expected number of keys
+     * 
+     * @param capacity the number of keys the set can keep before growing
+     */
+    public IntSet(int capacity) {
+        int length = Integer.highestOneBit(Math.max(4, capacity * 2 - 1)) << 1;
+
+        this.keys = new int[length];
+        this.size = 0;
+
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * Adds a key to the set
+     * 
+     * @param key the key to add
+     * @return true if the key was not already in the set
+     */
+    public boolean add(int key) {
+        int slot = find(key);
+
+        if (keys[slot] == key) {
+            return false;
+        }
+
+        keys[slot] = key;
+        size++;
+
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if a key is in the set
+     * 
+     * @param key the key to find
+     * @return true if the key is in the set
+     */
+    public boolean contains(int key) {
+        return keys[find(key)] == key;
+    }
+
+    /**
+     * Removes a key from the set
+     * 
+     * @param key the key to remove
+     * @return true if the key was in the set
+     */
+    public boolean remove(int key) {
+        int slot = find(key);
+
+        if (keys[slot] != key) {
+            return false;
+        }
+
+        // Moves back the keys following the removed one so probing still finds them
+        int mask = keys.length - 1;
+        int next = slot;
+
+        while (true) {
+            next = (next + 1) & mask;
+
+            if (keys[next] == FREE) {
+                break;
+            }
+
+            int home = CellKey.hash(keys[next]) & mask;
+
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                slot = next;
+            }
+        }
+
+        keys[slot] = FREE;
+        size--;
+
+        return true;
+    }
+
+    /**
+     * Removes every key from the set, keeping its capacity
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    /**
+     * Getter for size
+     * 
+     * @return the number of keys in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the set is empty
+     * 
+     * @return true if there are no keys in the set
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copies the keys of the set in an array, in no particular order
+     * 
+     * @param out the array receiving the keys, at least size() long
+     * @return the number of keys copied
+     */
+    public int toArray(int[] out) {
+        int num = 0;
+
+        for (int i : keys) {
+            if (i != FREE) {
+                out[num++] = i;
+            }
+        }
+
+        return num;
+    }
+
+    /**
+     * Finds the slot of a key
+     * 
+     * @param key the key to find
+     * @return the slot containing the key, or the free slot where it would go
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = CellKey.hash(key) & mask;
+
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Moves every key to a new table
+     * 
+     * @param length the length of the new table
+     */
+    private void rehash(int length) {
+        int[] old = keys;
+
+        keys = new int[length];
+        Arrays.fill(keys, FREE);
+
+        for (int i : old) {
+            if (i != FREE) {
+                keys[find(i)] = i;
+            }
+        }
+    }
+
+}
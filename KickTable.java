@@ -0,0 +1,121 @@
+/**
+ * The class <b>KickTable</b> rotates shapes with the Super Rotation System.
+ * When a rotated shape does not fit where it is, it is moved (kicked) by a few
+ * offsets, tried in order, and the first offset where it fits is kept. The
+ * offsets depend on the type of shape, the rotation it starts from and the
+ * direction it turns.
+ * 
+ * The tests only use the masks of the bit board and do not create objects, so
+ * a search can try every kick of every position.
+ * 
+ * Based on http://tetris.wikia.com/wiki/SRS (the y offsets are inverted since
+ * the rows of the board go down), and on the 180 degree kicks of TETR.IO
+ * 
+ * @author Benoît Jeaurond
+ */
+final class KickTable {
+
+    /**
+     * Offsets (dx, dy pairs) of the J, L, S, T and Z shapes, by direction (right,
+     * half turn, left) and rotation the shape starts from
+     */
+    private static final int[][][] KICKS = {
+        {
+            { 0, 0, -1, 0, -1, -1, 0, 2, -1, 2 },
+            { 0, 0, 1, 0, 1, 1, 0, -2, 1, -2 },
+            { 0, 0, 1, 0, 1, -1, 0, 2, 1, 2 },
+            { 0, 0, -1, 0, -1, 1, 0, -2, -1, -2 }
+        },
+        {
+            { 0, 0, 0, -1, 1, -1, -1, -1, 1, 0, -1, 0 },
+            { 0, 0, 1, 0, 1, -2, 1, -1, 0, -2, 0, -1 },
+            { 0, 0, 0, 1, -1, 1, 1, 1, -1, 0, 1, 0 },
+            { 0, 0, -1, 0, -1, -2, -1, -1, 0, -2, 0, -1 }
+        },
+        {
+            { 0, 0, 1, 0, 1, -1, 0, 2, 1, 2 },
+            { 0, 0, 1, 0, 1, 1, 0, -2, 1, -2 },
+            { 0, 0, -1, 0, -1, -1, 0, 2, -1, 2 },
+            { 0, 0, -1, 0, -1, 1, 0, -2, -1, -2 }
+        }
+    };
+
+    /**
+     * Offsets (dx, dy pairs) of the I shape, by direction (right, half turn, left)
+     * and rotation the shape starts from
+     */
+    private static final int[][][] I_KICKS = {
+        {
+            { 0, 0, -2, 0, 1, 0, -2, 1, 1, -2 },
+            { 0, 0, -1, 0, 2, 0, -1, -2, 2, 1 },
+            { 0, 0, 2, 0, -1, 0, 2, -1, -1, 2 },
+            { 0, 0, 1, 0, -2, 0, 1, 2, -2, -1 }
+        },
+        KICKS[1],
+        {
+            { 0, 0, -1, 0, 2, 0, -1, -2, 2, 1 },
+            { 0, 0, 2, 0, -1, 0, 2, -1, -1, 2 },
+            { 0, 0, 1, 0, -2, 0, 1, 2, -2, -1 },
+            { 0, 0, -2, 0, 1, 0, -2, 1, 1, -2 }
+        }
+    };
+
+    /**
+     * The O shape looks the same in every rotation and is never kicked
+     */
+    private static final int[] NO_KICK = { 0, 0 };
+
+    /**
+     * Number of quarter turns to the right of each direction
+     */
+    public static final int RIGHT = 1, HALF = 2, LEFT = 3;
+
+    /**
+     * This class only contains static methods
+     */
+    private KickTable() {
+    }
+
+    /**
+     * Rotates a shape, trying every kick in order
+     * 
+     * @param grid the cells of the fallen shapes
+     * @param type the type of shape
+     * @param x the x coordinate of the box of the shape
+     * @param y the y coordinate of the box of the shape
+     * @param rotation the rotation of the shape (an integer from 0 to 3)
+     * @param turns the direction, RIGHT, HALF or LEFT
+     * @return the packed position of the rotated shape (see Placement), or
+     *         Placement.NONE if every kick collides
+     */
+    public static int rotate(BitBoard grid, int type, int x, int y, int rotation, int turns) {
+        int to = (rotation + turns) & 3;
+        int mask = Shape.getMask(type, to);
+        int[] kicks = getKicks(type, rotation, turns);
+
+        for (int i = 0; i < kicks.length; i += 2) {
+            if (grid.fits(mask, x + kicks[i], y + kicks[i + 1])) {
+                return Placement.of(x + kicks[i], y + kicks[i + 1], to);
+            }
+        }
+
+        return Placement.NONE;
+    }
+
+    /**
+     * Getter for the offsets tried when rotating a shape
+     * 
+     * @param type the type of shape
+     * @param rotation the rotation the shape starts from
+     * @param turns the direction, RIGHT, HALF or LEFT
+     * @return the offsets as dx, dy pairs, do not modify it
+     */
+    public static int[] getKicks(int type, int rotation, int turns) {
+        if (type == 7) {
+            return NO_KICK;
+        }
+
+        return (type == 2 ? I_KICKS : KICKS)[turns - 1][rotation];
+    }
+
+}
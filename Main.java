@@ -1,18 +1,26 @@
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
-import javafx.animation.PauseTransition;
-import javafx.animation.SequentialTransition;
 import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
-import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
@@ -29,9 +37,6 @@ import javafx.scene.layout.VBox;
 import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Arc;
-import javafx.scene.shape.ArcType;
-import javafx.scene.shape.Polygon;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
@@ -39,38 +44,50 @@ import javafx.scene.text.TextAlignment;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
+import javax.management.JMException;
+
 public class Main extends Application {
 
-    private Arc halfCircle;
     private Board board;
-    private boolean pressed, running, gameOver;
+    private boolean running, gameOver;
     private BorderPane borderPane, pauseCenter, gameOverCenter;
-    private CheckBox checkGravity, checkSound, checkColor;
-    private double shadeThick;
+    private Bot bot;
+    private CheckBox checkGravity, checkSound, checkColor, checkBot;
+    private Game game;
+    private GameLoop gameLoop;
     private GridPane tetrisGrid;
-    private Group cellGroup;
+    private HighScores highScores;
+    private Metrics metrics;
+    private Renderer renderer;
+    private SaveGame saveGame;
+    private ExecutorService saver;
     private HBox root;
     private ImageView pauseImg, gameOverImg;
-    private int colorChoice, shapeSpeed;
-    private Label subScore, subLevel, subLine, score, line, level, spacePause, gameOverTitle, gameOverSub;
-    private List<Point> points;
+    private PieceView holdView;
+    private PieceView[] nextViews;
+    private int colorChoice, das, arr, savedShapes;
+    private String replayFile, metricsFile;
+    private Label subScore, subLevel, subLine, subHold, subNext, score, line, level, spacePause, gameOverTitle, gameOverSub, leaderboard, metricsLabel;
     private Map<Integer, Color> color1, color2;
     private Map<Integer, Map<Integer, Color>> colors;
     private MediaPlayer mainThemePlayer, soundEffectPlayer;
-    private PauseTransition pauseTransition;
-    private Point currentPoint;
-    private Polygon topShade, bottomShade;
-    private Rectangle boardShade, square, topRec;
+    private Rectangle boardShade;
     private Scene scene;
-    private SequentialTransition shapeTransition;
+    private SplittableRandom botRand;
     private StackPane stackPane;
     private Stage stage;
-    private Timeline musicTimeline;
-    private VBox vboxTop, vboxBottom, gameOverVbox;
+    private Timeline musicTimeline, metricsTimeline;
+    private VBox vboxTop, vboxBottom, vboxHold, vboxNext, gameOverVbox;
+    private HBox hboxPieces, hboxTop;
     
     private final static int PIXEL = 30;
+    private final static int PREVIEW_PIXEL = 12;
     private final static int musicFadeInMilli = 400;
     private final static int musicFadeOutMilli = 200;
+    private final static String replayDirectory = "replays";
+    private final static String scoreDirectory = "scores";
+    private final static String saveFile = "saves/tetris.sav";
+    private final static int leaderboardSize = 5;
 
     /**
      * Used for initial testing in the terminal. Use the WASD keys to move the shape
@@ -111,125 +128,40 @@ public class Main extends Application {
      * Paints the stage to reflect the data in the Board class.
      */
     public void paint() {
+        long start = System.nanoTime();
+
         if (!board.getGameOver()) {
 
             // In case the user presses the spacebar too quickly
             if (checkSound.isSelected() && mainThemePlayer.getStatus() == MediaPlayer.Status.PAUSED) {
                 playMusic();
             }
-            
-            // Updates the speed of the falling block if the speed changed
-            if (shapeSpeed != board.getTimePerBlock()) {
-                shapeTransition.stop();
-                createTransition();
-            }
 
             // Updates the stats about the game
             score.setText(String.valueOf(board.getScore()));
             line.setText(String.valueOf(board.getNumClearedLines()));
             level.setText(String.valueOf(board.getLevel()));
 
-            // Gets points of fallen shapes and remove everything from the tetrisGrid
-            points = board.getPoints();
-            tetrisGrid.getChildren().clear();
+            // Updates the held and next shapes, the held shape is faded when it can't be used
+            holdView.show(board.getHold(), colors.get(colorChoice));
+            holdView.setOpacity(board.getHoldUsed() ? 0.4 : 1.0);
 
-            // Iterates through each cell in the tetrisGrid
-            for (int i = 0; i < Board.HEIGHT; i++) {
-                for (int j = 0; j < Board.WIDTH; j++) {
-                    currentPoint = new Point(j, i);
-                    cellGroup = new Group();
-
-                    // Shapes used for each cell
-                    square = new Rectangle(PIXEL, PIXEL);
-                    topShade = new Polygon();                    
-                    bottomShade = new Polygon();
-
-                    // Shade's thickness
-                    shadeThick = (double) PIXEL / 7.5;
-
-                    // If the current point was or is a part of a shape, color the square
-                    if (points.contains(currentPoint)) {
-                        // The top and left part of the shade
-                        topShade.setOpacity(0.5);
-                        topShade.setFill(Color.WHITE);
-                        topShade.getPoints().addAll(new Double[] { 
-                            0.0, 0.0, 
-                            (double) PIXEL, 0.0, 
-                            (double) PIXEL - shadeThick, shadeThick,
-                            shadeThick, shadeThick, 
-                            shadeThick, (double) PIXEL - shadeThick, 
-                            0.0, (double) PIXEL 
-                        });
-
-                        // The bottom and right part of the shade
-                        bottomShade.setOpacity(0.5);
-                        bottomShade.setFill(Color.BLACK);
-                        bottomShade.getPoints().addAll(new Double[] { 
-                            0.0, (double) PIXEL, 
-                            (double) PIXEL, (double) PIXEL,
-                            (double) PIXEL, 0.0, 
-                            (double) PIXEL - shadeThick, shadeThick, 
-                            (double) PIXEL - shadeThick, (double) PIXEL - shadeThick,
-                             shadeThick, (double) PIXEL - shadeThick 
-                        });
-                        
-                        // Sets the color of the square according to its point type
-                        square.setFill(colors.get(colorChoice).get(points.get(points.indexOf(currentPoint)).getType()));
-
-                        cellGroup.getChildren().addAll(square, topShade, bottomShade);
-                    } else {
-                        // The top and left part of the shade
-                        topShade.setOpacity(0.1);
-                        topShade.setFill(Color.BLACK);
-                        topShade.getPoints().addAll(new Double[] { 
-                            0.0, 0.0, 
-                            (double) PIXEL, 0.0, 
-                            (double) PIXEL - shadeThick, shadeThick,
-                            shadeThick, shadeThick, 
-                            shadeThick, (double) PIXEL - shadeThick, 
-                            0.0, (double) PIXEL 
-                        });
-
-                        // The bottom and right part of the shade
-                        bottomShade.setOpacity(0.25);
-                        bottomShade.setFill(Color.BLACK);
-                        bottomShade.getPoints().addAll(new Double[] { 
-                            0.0, (double) PIXEL, 
-                            (double) PIXEL, (double) PIXEL,
-                            (double) PIXEL, 0.0, 
-                            (double) PIXEL - shadeThick, shadeThick, 
-                            (double) PIXEL - shadeThick, (double) PIXEL - shadeThick, 
-                            shadeThick, (double) PIXEL - shadeThick 
-                        });
-
-                        // Used to create the glossy effect
-                        topRec = new Rectangle(PIXEL, PIXEL / 2.65);
-                        topRec.setOpacity(0.05);
-                        topRec.setFill(Color.WHITE);
-
-                        halfCircle = new Arc((double) PIXEL / 2.0, (double) PIXEL / 2.0, (double) PIXEL / 2.0, (double) PIXEL / 8.0, 0.0f, 180.0f);
-                        halfCircle.setOpacity(0.05);
-                        halfCircle.setFill(Color.WHITE);
-                        halfCircle.setType(ArcType.ROUND);
-                        halfCircle.setRotate(180.0);
-
-                        // Colors the square in a sort of gradient
-                        square.setFill(Color.GRAY);
-                        square.setOpacity((55.0 / 62.0 - ((double) i + 30.0) / ((double) Board.HEIGHT + 50)));
-
-                        cellGroup.getChildren().addAll(square, topShade, bottomShade, halfCircle, topRec);
-                    }
-                    tetrisGrid.add(cellGroup, j, i);
-                }
+            for (int i = 0; i < nextViews.length; i++) {
+                nextViews[i].show(board.getNext(i), colors.get(colorChoice));
             }
+
+            // Updates the cells that changed since the last paint
+            renderer.render(board, colors.get(colorChoice));
         } else {
             // Stops the game, the moving shape, and the music
             gameOver = true;
             running = false;
             setSceneDisable(true);
-            shapeTransition.stop();
+            gameLoop.stop();
             stopMusic();
 
+            saveReplay();
+
             // Play sound effect
             if (checkSound.isSelected()) {
                 soundEffectPlayer.play();
@@ -248,8 +180,14 @@ public class Main extends Application {
             gameOverSub.setFont(Font.font("Segoe UI Semilight", 13.0));
             gameOverSub.setTextAlignment(TextAlignment.CENTER);
 
+            leaderboard = new Label(createLeaderboard());
+            leaderboard.setTextFill(Color.WHITE);
+            leaderboard.setFont(Font.font("Segoe UI Semilight", 13.0));
+            leaderboard.setTextAlignment(TextAlignment.CENTER);
+            leaderboard.setPadding(new Insets(15.0, 0.0, 0.0, 0.0));
+
             gameOverVbox = new VBox();
-            gameOverVbox.getChildren().addAll(gameOverImg, gameOverTitle, gameOverSub);
+            gameOverVbox.getChildren().addAll(gameOverImg, gameOverTitle, gameOverSub, leaderboard);
             gameOverVbox.setAlignment(Pos.CENTER);
 
             gameOverCenter = new BorderPane();
@@ -257,10 +195,52 @@ public class Main extends Application {
 
             stackPane.getChildren().addAll(boardShade, gameOverCenter);
         }
+
+        metrics.record(Metrics.PAINT, System.nanoTime() - start);
+
+        // The disk is not counted as paint time
+        autosave();
     }
 
     @Override
     public void start(Stage primaryStage) {
+        // Delayed auto shift and auto repeat rate in ticks, set with --das= and --arr=
+        das = getTicks("das", InputQueue.DEFAULT_DAS);
+        arr = getTicks("arr", InputQueue.DEFAULT_ARR);
+
+        // The high scores are read in the background, so the game starts right away
+        highScores = new HighScores(Paths.get(scoreDirectory));
+        Thread scoreLoader = new Thread(() -> {
+            try {
+                highScores.load();
+            } catch (IOException e) {
+                System.err.println("Could not read the high scores: " + e.getMessage());
+            }
+        });
+        scoreLoader.setDaemon(true);
+        scoreLoader.start();
+
+        // Measures the hot paths, the metrics are written to a file if the application is started with --metrics=
+        metrics = new Metrics();
+        metricsFile = getParameters().getNamed().get("metrics");
+
+        try {
+            metrics.register();
+        } catch (JMException e) {
+            System.err.println("Could not register the metrics: " + e.getMessage());
+        }
+
+        // Plays a replay instead of a new game if the application is started with --replay=
+        replayFile = getParameters().getNamed().get("replay");
+
+        // The game is saved every time a shape is locked, and resumed if it was left before it was over
+        saveGame = new SaveGame(Paths.get(saveFile));
+        saver = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
         // Sets the colors
         colorChoice = 0;
         colors = new HashMap<Integer, Map<Integer, Color>>();
@@ -297,17 +277,23 @@ public class Main extends Application {
         // Application icon
         primaryStage.getIcons().add(new Image("file:resources/tetris.png"));
 
-        // Grid setup
-        tetrisGrid = new GridPane();
-        tetrisGrid.getStyleClass().add("grid");
-        tetrisGrid.getStyleClass().add("background");
+        // Board setup, the canvas is used if the application is started with --renderer=canvas
+        if ("canvas".equals(getParameters().getNamed().get("renderer"))) {
+            renderer = new CanvasRenderer(PIXEL, colors);
+        } else {
+            tetrisGrid = new GridPane();
+            tetrisGrid.getStyleClass().add("grid");
+            tetrisGrid.getStyleClass().add("background");
 
-        for (int i = 0; i < Board.WIDTH; i++) {
-            tetrisGrid.getColumnConstraints().add(new ColumnConstraints(PIXEL));
-        }
+            for (int i = 0; i < Board.WIDTH; i++) {
+                tetrisGrid.getColumnConstraints().add(new ColumnConstraints(PIXEL));
+            }
 
-        for (int i = 0; i < Board.HEIGHT; i++) {
-            tetrisGrid.getRowConstraints().add(new RowConstraints(PIXEL));
+            for (int i = 0; i < Board.HEIGHT; i++) {
+                tetrisGrid.getRowConstraints().add(new RowConstraints(PIXEL));
+            }
+
+            renderer = new GridRenderer(tetrisGrid, PIXEL);
         }
 
         // Bop left side of the game
@@ -334,6 +320,41 @@ public class Main extends Application {
         vboxTop.getStyleClass().add("background");
         vboxTop.getChildren().addAll(score, subScore, level, subLevel, line, subLine);
 
+        // The metrics are shown next to the score when F3 is pressed
+        metricsLabel = new Label();
+        metricsLabel.getStyleClass().add("metrics");
+
+        hboxTop = new HBox();
+        hboxTop.getStyleClass().add("background");
+        hboxTop.getChildren().add(vboxTop);
+
+        // Middle left side of the game, the nodes of the held and next shapes are reused
+        holdView = new PieceView(PREVIEW_PIXEL);
+        subHold = new Label("hold");
+        subHold.getStyleClass().add("subScore");
+
+        vboxHold = new VBox();
+        vboxHold.getStyleClass().add("background");
+        vboxHold.getChildren().addAll(subHold, holdView);
+
+        subNext = new Label("next");
+        subNext.getStyleClass().add("subScore");
+
+        vboxNext = new VBox();
+        vboxNext.getStyleClass().add("background");
+        vboxNext.getChildren().add(subNext);
+
+        nextViews = new PieceView[Board.PREVIEW];
+        for (int i = 0; i < nextViews.length; i++) {
+            nextViews[i] = new PieceView(PREVIEW_PIXEL);
+            vboxNext.getChildren().add(nextViews[i]);
+        }
+
+        hboxPieces = new HBox();
+        hboxPieces.getStyleClass().add("background");
+        hboxPieces.setSpacing(25.0);
+        hboxPieces.getChildren().addAll(vboxHold, vboxNext);
+
         // Bottom left side of the game
         checkGravity = new CheckBox("gravity");
         checkGravity.setSelected(true);
@@ -343,7 +364,9 @@ public class Main extends Application {
             }
         });
         checkGravity.selectedProperty().addListener((observable, oldValue, newValue) -> {
-            board.setGravity(newValue);
+            if (!(game instanceof ReplayPlayer)) {
+                board.setGravity(newValue);
+            }
             checkGravity.setSelected(newValue);
         });
 
@@ -374,20 +397,38 @@ public class Main extends Application {
             paint();
         });
 
+        // The bot places a shape every time the shape would move down
+        bot = new Bot(ForkJoinPool.commonPool(), 2);
+        botRand = new SplittableRandom();
+
+        checkBot = new CheckBox("autoplay");
+        checkBot.setSelected(false);
+        checkBot.focusedProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue) {
+                root.requestFocus();
+            }
+        });
+        checkBot.selectedProperty().addListener((observable, oldValue, newValue) -> {
+            if (!(game instanceof ReplayPlayer)) {
+                game.setPolicy(newValue ? bot : null, botRand);
+            }
+        });
+
         spacePause = new Label("press space to pause");
         spacePause.getStyleClass().add("pause");
 
-        vboxBottom.getChildren().addAll(checkColor, checkSound, checkGravity, spacePause);
+        vboxBottom.getChildren().addAll(checkColor, checkSound, checkGravity, checkBot, spacePause);
 
         // Seperate layouts from the top to the bottom
         borderPane = new BorderPane();
         borderPane.getStyleClass().add("background");
-        borderPane.setTop(vboxTop);
+        borderPane.setTop(hboxTop);
+        borderPane.setCenter(hboxPieces);
         borderPane.setBottom(vboxBottom);
 
         // Allows to overlays layouts for pausing the game
         stackPane = new StackPane();
-        stackPane.getChildren().add(tetrisGrid);
+        stackPane.getChildren().add(renderer.getNode());
 
         // The main layout of the game
         root = new HBox();
@@ -411,50 +452,67 @@ public class Main extends Application {
         scene = new Scene(root);
         scene.getStylesheets().add("file:resources/application.css");
         scene.setOnKeyReleased(ke -> {
-            pressed = true;
+            int move = toMove(ke.getCode());
+
+            if (move != 0) {
+                game.getInput().release(move);
+            }
         });
         scene.setOnKeyPressed((ke) -> {
-            if (running) {
-                if (ke.getCode().equals(KeyCode.LEFT) || ke.getCode().equals(KeyCode.A)) {
-                    board.moveLeft();
-                    paint();
-                } else if (ke.getCode().equals(KeyCode.DOWN) || ke.getCode().equals(KeyCode.S)) {
-                    board.moveDown();
-                    paint();
-                } else if (ke.getCode().equals(KeyCode.RIGHT) || ke.getCode().equals(KeyCode.D)) {
-                    board.moveRight();
-                    paint();
-                } else if ((ke.getCode().equals(KeyCode.UP) || ke.getCode().equals(KeyCode.W)) && pressed) {
-                    pressed = false;
-                    board.rotate();
+            long start = System.nanoTime();
+
+            // The moves are applied by the game loop on its next tick
+            int move = toMove(ke.getCode());
+
+            if (running && game instanceof ReplayPlayer) {
+                // The left and right keys go back and forward in the replay
+                if (move == Game.LEFT || move == Game.RIGHT) {
+                    ((ReplayPlayer) game).seek(game.getTicks() + (move == Game.LEFT ? -1 : 1) * ReplayPlayer.KEYFRAME_TICKS);
                     paint();
                 }
+            } else if (running && move != 0) {
+                game.getInput().press(move);
             }
             if (ke.getCode().equals(KeyCode.SPACE)) {
                 if (gameOver) {
-                    shapeTransition.stop();
                     startNewGame();
-                    board.setGravity(checkGravity.isSelected());
+                    if (!(game instanceof ReplayPlayer)) {
+                        board.setGravity(checkGravity.isSelected());
+                    }
                     stackPane.getChildren().removeAll(boardShade, gameOverCenter);
                 } else {
                     if (running) {
                         running = false;
 
                         stopMusic();
-                        shapeTransition.stop();
+                        gameLoop.stop();
                         stackPane.getChildren().addAll(boardShade, pauseCenter);
                     } else {
                         running = true;
 
                         playMusic();
-                        shapeTransition.play();
+                        gameLoop.start();
                         stackPane.getChildren().removeAll(boardShade, pauseCenter);
                     }
                 }
                 setSceneDisable(!running);
             }
+            if (ke.getCode().equals(KeyCode.F3)) {
+                toggleMetrics();
+            }
+
+            metrics.record(Metrics.INPUT, System.nanoTime() - start);
         });
 
+        // Runs the game at a fixed pace and paints it at most once per frame
+        gameLoop = new GameLoop(this::paint);
+        gameLoop.setMetrics(metrics);
+
+        // Publishes the metrics every second
+        metricsTimeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> updateMetrics()));
+        metricsTimeline.setCycleCount(Timeline.INDEFINITE);
+        metricsTimeline.play();
+
         startNewGame();
 
         // Shows the stage
@@ -468,14 +526,54 @@ public class Main extends Application {
      * Creates/Resets variables needed to start a new game and calls .
      */
     public void startNewGame() {
-        board = new Board();
+        if (replayFile != null) {
+            try {
+                game = new ReplayPlayer(Replay.read(Paths.get(replayFile)), bot);
+                board = game.getBoard();
+            } catch (IOException e) {
+                System.err.println("Could not read the replay " + replayFile + ": " + e.getMessage());
+                replayFile = null;
+            }
+        }
+
+        BoardState saved = null;
+
+        if (replayFile == null) {
+            try {
+                // Read by the thread of the saves, after the last save or deletion
+                saved = saver.submit(saveGame::load).get();
+            } catch (ExecutionException e) {
+                System.err.println("Could not resume the saved game: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // A resumed game is not recorded, it can't be replayed from the seed of its shapes
+        if (saved != null && !saved.getGameOver()) {
+            board = new Board(saved);
+            game = new Game(board, new InputQueue(das, arr));
+            game.setPolicy(checkBot.isSelected() ? bot : null, botRand);
+            checkGravity.setSelected(board.getGravity());
+        } else if (replayFile == null) {
+            // Every game is recorded from the seed of its shapes
+            long seed = System.nanoTime();
+
+            board = new Board(seed);
+            game = new Game(board, new InputQueue(das, arr));
+            game.setPolicy(checkBot.isSelected() ? bot : null, botRand);
+            game.record(new Replay(seed, board.getGravity()));
+        }
+
+        savedShapes = board.getNumShapes();
+        board.setMetrics(metrics);
+
         running = true;
         gameOver = false;
-        pressed = true;
-        shapeSpeed = board.getTimePerBlock();
 
         paint();
-        createTransition();
+        gameLoop.setGame(game);
+        gameLoop.start();
         playMusic();
 
         soundEffectPlayer.stop();
@@ -484,21 +582,220 @@ public class Main extends Application {
     }
 
     /**
-     * Creates a new transition for the moving shape. 
-     * Mostly called to changed the speed of the moving shape.
+     * Adds the score of the finished game to the high scores, except for replays
+     * and games finished by the bot, and lists the best scores.
+     * 
+     * @return the text of the leaderboard
      */
-    public void createTransition() {
-        shapeSpeed = board.getTimePerBlock();
+    public String createLeaderboard() {
+        String text = "best scores";
 
-        shapeTransition = new SequentialTransition();
-        pauseTransition = new PauseTransition(Duration.millis(shapeSpeed));
-        pauseTransition.setOnFinished(evt -> {
-            board.moveDown();
-            paint();
+        try {
+            int rank = -1;
+
+            if (!(game instanceof ReplayPlayer) && !checkBot.isSelected()) {
+                rank = highScores.add(board);
+            }
+
+            List<HighScore> top = highScores.getTop(leaderboardSize);
+
+            for (int i = 0; i < top.size(); i++) {
+                text += "\n" + (i + 1 == rank ? "> " : "") + (i + 1) + ". " + top.get(i).getScore() + " (level " + top.get(i).getLevel() + ")";
+            }
+        } catch (IOException e) {
+            System.err.println("Could not save the high scores: " + e.getMessage());
+        }
+
+        return text;
+    }
+
+    /**
+     * Writes the replay of the current game in the replays folder, once per game.
+     */
+    public void saveReplay() {
+        Replay replay = game.getRecording();
+
+        if (replay == null) {
+            return;
+        }
+
+        game.record(null);
+        replay.finish(game.getTicks(), board);
+
+        try {
+            Files.createDirectories(Paths.get(replayDirectory));
+            replay.write(Paths.get(replayDirectory, "tetris-" + System.currentTimeMillis() + ".rpl"));
+        } catch (IOException e) {
+            System.err.println("Could not save the replay: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the current game every time a shape is locked, so it is resumed
+     * after a crash, and deletes the save once the game is over. Replays are
+     * never saved.
+     */
+    public void autosave() {
+        if (game instanceof ReplayPlayer || (!board.getGameOver() && board.getNumShapes() == savedShapes)) {
+            return;
+        }
+
+        savedShapes = board.getNumShapes();
+        save(board.getGameOver() ? null : board.getState());
+    }
+
+    /**
+     * Saves a state of the board, or deletes the save, on the thread of the
+     * saves so the frames never wait for the disk
+     * 
+     * @param state the state to be saved, null to delete the save
+     */
+    private void save(BoardState state) {
+        saver.execute(() -> {
+            try {
+                if (state == null) {
+                    saveGame.delete();
+                } else {
+                    saveGame.save(state);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not save the game: " + e.getMessage());
+            }
         });
-        shapeTransition.getChildren().add(pauseTransition);
-        shapeTransition.setCycleCount(Timeline.INDEFINITE);
-        shapeTransition.play();
+    }
+
+    /**
+     * Shows or hides the metrics next to the score
+     */
+    public void toggleMetrics() {
+        if (!hboxTop.getChildren().remove(metricsLabel)) {
+            metricsLabel.setText(metrics.toString());
+            hboxTop.getChildren().add(metricsLabel);
+        }
+
+        stage.sizeToScene();
+    }
+
+    /**
+     * Publishes the metrics, shows them if they are visible and writes them to
+     * the metrics file if there is one
+     */
+    public void updateMetrics() {
+        metrics.setNodes(countNodes(scene.getRoot()));
+        metrics.publish();
+
+        if (hboxTop.getChildren().contains(metricsLabel)) {
+            metricsLabel.setText(metrics.toString());
+        }
+
+        if (metricsFile != null) {
+            try {
+                metrics.write(Paths.get(metricsFile));
+            } catch (IOException e) {
+                System.err.println("Could not write the metrics: " + e.getMessage());
+                metricsFile = null;
+            }
+        }
+    }
+
+    /**
+     * Reads a number of ticks given to the application, like --das=10
+     * 
+     * @param name the name of the parameter
+     * @param defaultTicks the ticks used if the parameter is missing or is not
+     *            a number
+     * @return the number of ticks, 0 if it is negative
+     */
+    private int getTicks(String name, int defaultTicks) {
+        String value = getParameters().getNamed().get(name);
+
+        if (value == null) {
+            return defaultTicks;
+        }
+
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid --" + name + "=" + value + ", " + defaultTicks + " is used");
+            return defaultTicks;
+        }
+    }
+
+    /**
+     * Counts the nodes of a part of the scene
+     * 
+     * @param node the first node of the part
+     * @return the number of nodes, the node included
+     */
+    private static int countNodes(Node node) {
+        int count = 1;
+
+        if (node instanceof Parent) {
+            for (Node i : ((Parent) node).getChildrenUnmodifiable()) {
+                count += countNodes(i);
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public void stop() {
+        // Keeps the replay of a game left before it was over, and the game itself
+        if (game != null) {
+            saveReplay();
+
+            if (metricsFile != null) {
+                updateMetrics();
+            }
+
+            if (!(game instanceof ReplayPlayer) && !board.getGameOver()) {
+                save(board.getState());
+            }
+
+            // Waits for the last save before leaving
+            saver.shutdown();
+
+            try {
+                saver.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Finds the move of a key
+     * 
+     * @param code the code of the key
+     * @return the move of the key (see Game), 0 if the key does not move the shape
+     */
+    private static int toMove(KeyCode code) {
+        switch (code) {
+        case LEFT:
+        case A:
+            return Game.LEFT;
+        case RIGHT:
+        case D:
+            return Game.RIGHT;
+        case DOWN:
+        case S:
+            return Game.DOWN;
+        case UP:
+        case W:
+            return Game.ROTATE;
+        case Z:
+            return Game.ROTATE_LEFT;
+        case X:
+            return Game.ROTATE_HALF;
+        case ENTER:
+            return Game.HARD_DROP;
+        case C:
+        case SHIFT:
+            return Game.HOLD;
+        default:
+            return 0;
+        }
     }
 
     /**
@@ -536,8 +833,11 @@ public class Main extends Application {
         subLevel.setDisable(value);
         subScore.setDisable(value);
         subLine.setDisable(value);
+        subHold.setDisable(value);
+        subNext.setDisable(value);
 
         checkColor.setDisable(value);
+        checkBot.setDisable(value);
         checkGravity.setDisable(value);
         checkSound.setDisable(value);
 
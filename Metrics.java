@@ -0,0 +1,289 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * The class <b>Metrics</b> measures where the time of the frames goes while
+ * playing. Every timer keeps its durations (nanoseconds) in a Histogram, which
+ * has fixed buckets and does not create any object, so a measure only costs two
+ * calls to System.nanoTime(). The pauses of the garbage collector are measured
+ * from the notifications of the JVM, to the millisecond.
+ * 
+ * The timers are filled by the JavaFX thread. publish() copies them, and the
+ * copies are shown by the overlay, read through JMX (as Tetris:type=Metrics)
+ * and written to the metrics file, from any thread. The copies are read in
+ * place while holding the lock of the metrics, so reading them does not
+ * create another histogram.
+ * 
+ * @author Benoît Jeaurond
+ */
+class Metrics implements DynamicMBean {
+
+    /**
+     * The timers: board methods, ticks of the game, paints, key presses,
+     * time between two frames and garbage collector pauses
+     */
+    public static final int MOVE_DOWN = 0, REMOVE_LINES = 1, ROTATE = 2, TICK = 3, PAINT = 4, INPUT = 5, FRAME = 6,
+            GC = 7, TIMERS = 8;
+
+    /**
+     * Names of the timers, used by the overlay, JMX and the metrics file
+     */
+    public static final String[] NAMES = { "moveDown", "removeLines", "rotate", "tick", "paint", "input", "frame",
+            "gc" };
+
+    /**
+     * Statistics of every timer given through JMX, all in microseconds except
+     * the count
+     */
+    private static final String[] STATS = { "count", "mean", "p50", "p99", "max" };
+
+    /**
+     * Name of the MBean
+     */
+    private static final String OBJECT_NAME = "Tetris:type=Metrics";
+
+    /**
+     * Timers being filled, and their copies made by publish()
+     */
+    private Histogram[] timers, published;
+
+    /**
+     * Number of nodes of the scene, set by the application
+     */
+    private volatile int nodes;
+
+    /**
+     * True if the timers are cleared on the next publish()
+     */
+    private volatile boolean reset;
+
+    /**
+     * Constructor of the Metrics class
+     */
+    public Metrics() {
+        this.timers = new Histogram[TIMERS];
+        this.published = new Histogram[TIMERS];
+
+        for (int i = 0; i < TIMERS; i++) {
+            timers[i] = new Histogram();
+            published[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Adds a duration to a timer, only called by the JavaFX thread
+     * 
+     * @param timer the timer, any but GC
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(int timer, long nanos) {
+        timers[timer].add(nanos);
+    }
+
+    /**
+     * Copies the timers, the copies are then read by the other methods
+     */
+    public synchronized void publish() {
+        for (int i = 0; i < TIMERS; i++) {
+            if (reset) {
+                timers[i].clear();
+            }
+
+            published[i].clear();
+            published[i].add(timers[i]);
+        }
+
+        reset = false;
+    }
+
+    /**
+     * Clears every timer on the next publish()
+     */
+    public void reset() {
+        reset = true;
+    }
+
+    /**
+     * Setter of nodes
+     * 
+     * @param nodes the number of nodes of the scene
+     */
+    public void setNodes(int nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Registers the metrics as an MBean and starts measuring the pauses of the
+     * garbage collector. The concurrent cycles of the collectors are not pauses
+     * and are not measured.
+     * 
+     * @throws JMException if the MBean can't be registered
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+
+        for (GarbageCollectorMXBean i : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (i instanceof NotificationEmitter && !i.getName().contains("Concurrent") && !i.getName().contains("Cycles")) {
+                ((NotificationEmitter) i).addNotificationListener((notification, handback) -> recordPause(notification), null, null);
+            }
+        }
+    }
+
+    /**
+     * Adds the duration of a garbage collection, called by the thread of the
+     * notifications
+     * 
+     * @param notification the notification of the garbage collector
+     */
+    private synchronized void recordPause(Notification notification) {
+        if (notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            timers[GC].add(info.getGcInfo().getDuration() * 1_000_000L);
+        }
+    }
+
+    /**
+     * Writes the published timers to a text file, replaced with an atomic rename
+     * so it can be read at any moment
+     * 
+     * @param path the metrics file
+     * @throws IOException if the file can't be written
+     */
+    public void write(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        Files.write(temporary, toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        if (attribute.equals("nodes")) {
+            return nodes;
+        }
+
+        int dot = attribute.indexOf('.');
+
+        for (int i = 0; i < TIMERS && dot > 0; i++) {
+            if (NAMES[i].equals(attribute.substring(0, dot))) {
+                // The copy is read in place, publish() waits for it
+                synchronized (this) {
+                    Histogram timer = published[i];
+
+                    switch (attribute.substring(dot + 1)) {
+                    case "count":
+                        return timer.getCount();
+                    case "mean":
+                        return timer.getMean() / 1000.0;
+                    case "p50":
+                        return timer.getPercentile(50) / 1000.0;
+                    case "p99":
+                        return timer.getPercentile(99) / 1000.0;
+                    case "max":
+                        return timer.getMax() / 1000.0;
+                    }
+                }
+            }
+        }
+
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+
+        for (String i : attributes) {
+            try {
+                list.add(new Attribute(i, getAttribute(i)));
+            } catch (AttributeNotFoundException e) {
+                // Unknown attributes are left out of the list
+            }
+        }
+
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (actionName.equals("reset")) {
+            reset();
+            return null;
+        }
+
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[TIMERS * STATS.length + 1];
+
+        for (int i = 0; i < TIMERS; i++) {
+            for (int j = 0; j < STATS.length; j++) {
+                boolean count = STATS[j].equals("count");
+
+                attributes[i * STATS.length + j] = new MBeanAttributeInfo(NAMES[i] + "." + STATS[j],
+                        count ? "java.lang.Long" : "java.lang.Double",
+                        count ? "Number of measures" : STATS[j] + " in microseconds", true, false, false);
+            }
+        }
+        attributes[attributes.length - 1] = new MBeanAttributeInfo("nodes", "java.lang.Integer", "Number of nodes of the scene", true, false, false);
+
+        MBeanOperationInfo[] operations = { new MBeanOperationInfo("reset", "Clears every timer", new MBeanParameterInfo[0],
+                "void", MBeanOperationInfo.ACTION) };
+
+        return new MBeanInfo(getClass().getName(), "Time spent by the hot paths of the game", attributes, null, operations, null);
+    }
+
+    @Override
+    public synchronized String toString() {
+        String text = String.format("%-12s %8s %9s %9s %9s %9s%n", "us", "count", "mean", "p50", "p99", "max");
+
+        for (int i = 0; i < TIMERS; i++) {
+            Histogram timer = published[i];
+
+            text += String.format("%-12s %8d %9.1f %9.1f %9.1f %9.1f%n", NAMES[i], timer.getCount(),
+                    timer.getMean() / 1000.0, timer.getPercentile(50) / 1000.0, timer.getPercentile(99) / 1000.0,
+                    timer.getMax() / 1000.0);
+        }
+
+        return text + "nodes " + nodes;
+    }
+
+}
@@ -0,0 +1,33 @@
+import java.util.SplittableRandom;
+
+/**
+ * The interface <b>MovePolicy</b> is implemented by the players of headless
+ * games. A policy decides where the current shape goes and moves it there.
+ * 
+ * @author Benoît Jeaurond
+ */
+interface MovePolicy {
+
+    /**
+     * Moves the current shape of the board until it is locked or the game is
+     * over
+     * 
+     * @param board the board being played
+     * @param rand random numbers of the game, seeded by the simulator
+     */
+    void place(Board board, SplittableRandom rand);
+
+    /**
+     * Moves the current shape down until a new shape is created
+     * 
+     * @param board the board being played
+     */
+    static void drop(Board board) {
+        int shapes = board.getNumShapes();
+
+        while (!board.getGameOver() && board.getNumShapes() == shapes) {
+            board.moveDown();
+        }
+    }
+
+}
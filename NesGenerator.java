@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The class <b>NesGenerator</b> chooses shapes like the NES version of Tetris.
+ * A number from 0 to 7 is picked, and if it is 7 or the same shape as the last
+ * one, a second number from 0 to 6 is picked and kept. Repeated shapes are
+ * then less likely.
+ * 
+ * @author Benoît Jeaurond
+ */
+class NesGenerator implements PieceGenerator {
+
+    /**
+     * Random numbers of the generator
+     */
+    private XorShift rand;
+
+    /**
+     * Type of the last shape, 0 if none
+     */
+    private int last;
+
+    /**
+     * Constructor of the NesGenerator class specifying the seed
+     * 
+     * @param seed the seed of the generator
+     */
+    public NesGenerator(long seed) {
+        this.rand = new XorShift(seed);
+        this.last = 0;
+    }
+
+    /**
+     * Constructor of the NesGenerator class copying another generator
+     * 
+     * @param generator the generator to be copied
+     */
+    public NesGenerator(NesGenerator generator) {
+        this.rand = new XorShift(generator.rand);
+        this.last = generator.last;
+    }
+
+    /**
+     * Constructor of the NesGenerator class reading a generator written by
+     * write(), after its kind
+     * 
+     * @param buffer the buffer where the generator was written
+     * @throws IOException if the last shape is not from 0 to 7
+     */
+    NesGenerator(ByteBuffer buffer) throws IOException {
+        this.rand = new XorShift(0);
+        this.rand.setState(buffer.getLong());
+        this.last = buffer.get();
+
+        if (last < 0 || last > 7) {
+            throw new IOException("Invalid last shape " + last);
+        }
+    }
+
+    @Override
+    public int next() {
+        int num = rand.nextInt(8);
+
+        if (num == 7 || num + 1 == last) {
+            num = rand.nextInt(7);
+        }
+
+        last = num + 1;
+
+        return last;
+    }
+
+    @Override
+    public PieceGenerator copy() {
+        return new NesGenerator(this);
+    }
+
+    @Override
+    public void write(ByteBuffer buffer) {
+        buffer.put((byte) NES);
+        buffer.putLong(rand.getState());
+        buffer.put((byte) last);
+    }
+
+}
@@ -0,0 +1,76 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The interface <b>PieceGenerator</b> is implemented by the different ways of
+ * choosing the type of the next shape. Generators are seeded and are not
+ * shared, so a game can be replayed and games can be simulated in parallel.
+ * 
+ * @author Benoît Jeaurond
+ */
+interface PieceGenerator {
+
+    /**
+     * Kinds of generator, written before the state of a generator
+     */
+    int NES = 0, BAG = 1;
+
+    /**
+     * Chooses the type of the next shape
+     * 
+     * @return a type of shape, from 1 to 7
+     */
+    int next();
+
+    /**
+     * Copies the generator, the copy then creates the same shapes
+     * 
+     * @return a copy of the generator
+     */
+    PieceGenerator copy();
+
+    /**
+     * Writes the kind and the state of the generator, a generator read from them
+     * then creates the same shapes
+     * 
+     * @param buffer the buffer where the generator is written
+     */
+    void write(ByteBuffer buffer);
+
+    /**
+     * Creates a generator from its name
+     * 
+     * @param name the name of the generator, nes or bag
+     * @param seed the seed of the generator
+     * @return the generator, or null if the name is unknown
+     */
+    static PieceGenerator create(String name, long seed) {
+        if (name.equals("nes")) {
+            return new NesGenerator(seed);
+        } else if (name.equals("bag")) {
+            return new BagGenerator(seed);
+        }
+
+        return null;
+    }
+
+    /**
+     * Creates a generator written by write()
+     * 
+     * @param buffer the buffer where the generator was written
+     * @return the generator, or null if its kind is unknown
+     * @throws IOException if the state of the generator is not valid
+     */
+    static PieceGenerator read(ByteBuffer buffer) throws IOException {
+        int kind = buffer.get();
+
+        if (kind == NES) {
+            return new NesGenerator(buffer);
+        } else if (kind == BAG) {
+            return new BagGenerator(buffer);
+        }
+
+        return null;
+    }
+
+}
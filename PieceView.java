@@ -0,0 +1,97 @@
+import java.util.Map;
+
+import javafx.scene.layout.GridPane;
+import javafx.scene.paint.Color;
+
+/**
+ * The class <b>PieceView</b> shows a shape outside of the board, like the held
+ * shape or a next shape. The nodes of its cells are created once and only
+ * filled or hidden when the shape changes.
+ * 
+ * @author Benoît Jeaurond
+ */
+class PieceView extends GridPane {
+
+    /**
+     * Value of a view that was never shown
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Number of columns and rows of the view, the shapes are shown in their
+     * spawn orientation
+     */
+    private static final int COLUMNS = 4, ROWS = 2;
+
+    /**
+     * Nodes of every cell, indexed by y * COLUMNS + x
+     */
+    private CellNode[] cells;
+
+    /**
+     * Type of shape currently shown (0 if none)
+     */
+    private int shown;
+
+    /**
+     * Colors used for the last show
+     */
+    private Map<Integer, Color> palette;
+
+    /**
+     * Constructor of the PieceView class, adds the nodes of every cell
+     * 
+     * @param pixel the size of a cell
+     */
+    public PieceView(int pixel) {
+        this.cells = new CellNode[COLUMNS * ROWS];
+        this.shown = UNKNOWN;
+
+        getStyleClass().add("grid");
+
+        for (int i = 0; i < ROWS; i++) {
+            for (int j = 0; j < COLUMNS; j++) {
+                cells[i * COLUMNS + j] = new CellNode(pixel);
+                cells[i * COLUMNS + j].setVisible(false);
+
+                add(cells[i * COLUMNS + j], j, i);
+            }
+        }
+    }
+
+    /**
+     * Shows a shape, nothing is changed if it is already shown
+     * 
+     * @param type the type of shape, 0 to show nothing
+     * @param palette the colors of the shapes
+     */
+    public void show(int type, Map<Integer, Color> palette) {
+        if (type == shown && palette == this.palette) {
+            return;
+        }
+
+        int mask = 0;
+
+        if (type != 0) {
+            mask = Shape.getMask(type, 0);
+
+            // The I shape is in the second row of its box
+            while ((mask & 0xF) == 0) {
+                mask >>>= 4;
+            }
+        }
+
+        for (int i = 0; i < cells.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                cells[i].fill(palette.get(type));
+                cells[i].setVisible(true);
+            } else {
+                cells[i].setVisible(false);
+            }
+        }
+
+        shown = type;
+        this.palette = palette;
+    }
+
+}
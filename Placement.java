@@ -0,0 +1,80 @@
+/**
+ * The class <b>Placement</b> packs the position of a shape (the x and y
+ * coordinates of its box and its rotation) into a single integer, so positions
+ * can be returned, compared and stored without creating objects. The
+ * coordinates are kept with an offset so they can be a bit out of the board,
+ * where the box of a shape can be.
+ * 
+ * @author Benoît Jeaurond
+ */
+final class Placement {
+
+    /**
+     * Value returned when there is no position
+     */
+    public static final int NONE = -1;
+
+    /**
+     * Offset added to the coordinates so they are never negative
+     */
+    private static final int OFFSET = 8;
+
+    /**
+     * This class only contains static methods
+     */
+    private Placement() {
+    }
+
+    /**
+     * Packs a position
+     * 
+     * @param x the x coordinate of the box
+     * @param y the y coordinate of the box
+     * @param rotation the rotation (an integer from 0 to 3)
+     * @return the packed position
+     */
+    public static int of(int x, int y, int rotation) {
+        return (x + OFFSET) | (y + OFFSET) << 8 | rotation << 16;
+    }
+
+    /**
+     * Getter for the x coordinate of a position
+     * 
+     * @param placement the packed position
+     * @return the x coordinate of the box
+     */
+    public static int getX(int placement) {
+        return (placement & 0xFF) - OFFSET;
+    }
+
+    /**
+     * Getter for the y coordinate of a position
+     * 
+     * @param placement the packed position
+     * @return the y coordinate of the box
+     */
+    public static int getY(int placement) {
+        return ((placement >>> 8) & 0xFF) - OFFSET;
+    }
+
+    /**
+     * Getter for the rotation of a position
+     * 
+     * @param placement the packed position
+     * @return the rotation (an integer from 0 to 3)
+     */
+    public static int getRotation(int placement) {
+        return (placement >>> 16) & 3;
+    }
+
+    /**
+     * Gives a readable version of a position
+     * 
+     * @param placement the packed position
+     * @return the position as a string
+     */
+    public static String toString(int placement) {
+        return "Placement X: " + getX(placement) + " Y: " + getY(placement) + " Rotation: " + getRotation(placement);
+    }
+
+}
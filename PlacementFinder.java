@@ -0,0 +1,326 @@
+/**
+ * The class <b>PlacementFinder</b> finds every position where the current shape
+ * can be locked. It does a breadth first search over the positions (x, y and
+ * rotation) the shape can reach with the moves of a player, so positions
+ * reached by sliding under other shapes or by kicking a rotation are found
+ * too. A position is kept when the shape can't move down from it, and only
+ * once for the cells it covers (the S, Z, I and O shapes cover the same cells
+ * in two rotations).
+ * 
+ * The finder is reused between searches and keeps the moves leading to each
+ * position, so the search itself does not create objects. A position packs in
+ * 11 bits, so the positions reached and their moves are kept in arrays indexed
+ * by position, which are faster than a hash map of the positions reached.
+ * 
+ * @author Benoît Jeaurond
+ */
+class PlacementFinder {
+
+    /**
+     * Moves used by the search and kept in the paths
+     */
+    public static final byte MOVE_LEFT = 0, MOVE_RIGHT = 1, MOVE_DOWN = 2, ROTATE_RIGHT = 3, ROTATE_LEFT = 4, ROTATE_HALF = 5;
+
+    /**
+     * Number of different moves
+     */
+    private static final int NUM_MOVES = 6;
+
+    /**
+     * The box of a shape can be out of the board by up to 3 cells to the left
+     * and to the top
+     */
+    private static final int MARGIN = 3;
+
+    /**
+     * A state packs the x coordinate (4 bits), the y coordinate (5 bits) and the
+     * rotation (2 bits) of the box of a shape, with the margin added
+     */
+    private static final int X_BITS = 4, Y_BITS = 5, STATES = 1 << (X_BITS + Y_BITS + 2);
+
+    /**
+     * Positions already reached by the search, one bit per state
+     */
+    private long[] visited;
+
+    /**
+     * State from which every state was reached, and the move used
+     */
+    private int[] parents;
+    private byte[] moves;
+
+    /**
+     * States to visit, in the order they were reached
+     */
+    private int[] queue;
+
+    /**
+     * States where the shape can be locked
+     */
+    private int[] placements;
+
+    /**
+     * Number of placements found by the last search
+     */
+    private int size;
+
+    /**
+     * Cells covered by the placements found, to keep each of them once
+     */
+    private IntSet covered;
+
+    /**
+     * Type of shape of the last search
+     */
+    private int type;
+
+    /**
+     * Constructor of the PlacementFinder class
+     */
+    public PlacementFinder() {
+        this.visited = new long[(STATES + 63) / 64];
+        this.parents = new int[STATES];
+        this.moves = new byte[STATES];
+        this.queue = new int[STATES];
+        this.placements = new int[STATES];
+        this.covered = new IntSet(64);
+    }
+
+    /**
+     * Finds the placements of the current shape of a board
+     * 
+     * @param board the board
+     * @return the number of placements found
+     */
+    public int find(Board board) {
+        Shape shape = board.getCurrentShape();
+
+        return find(board.getGrid(), shape.getType(), shape.getX(), shape.getY(), shape.getRotation());
+    }
+
+    /**
+     * Finds the placements of a shape
+     * 
+     * @param grid the cells of the fallen shapes
+     * @param type the type of shape
+     * @param x the x coordinate of the box of the shape
+     * @param y the y coordinate of the box of the shape
+     * @param rotation the rotation of the shape
+     * @return the number of placements found
+     */
+    public int find(BitBoard grid, int type, int x, int y, int rotation) {
+        this.type = type;
+        size = 0;
+        covered.clear();
+
+        for (int i = 0; i < visited.length; i++) {
+            visited[i] = 0;
+        }
+
+        if (!grid.fits(Shape.getMask(type, rotation), x, y)) {
+            return 0;
+        }
+
+        int head = 0;
+        int tail = 0;
+        int start = toState(x, y, rotation);
+
+        visit(start);
+        parents[start] = -1;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int state = queue[head++];
+            int stateX = getX(state);
+            int stateY = getY(state);
+            int stateRotation = getRotation(state);
+            int mask = Shape.getMask(type, stateRotation);
+
+            if (!grid.fits(mask, stateX, stateY + 1)) {
+                addPlacement(state, mask, stateX, stateY);
+            }
+
+            for (int i = 0; i < NUM_MOVES; i++) {
+                int next;
+
+                if (i == MOVE_LEFT || i == MOVE_RIGHT || i == MOVE_DOWN) {
+                    int nextX = stateX + (i == MOVE_LEFT ? -1 : i == MOVE_RIGHT ? 1 : 0);
+                    int nextY = stateY + (i == MOVE_DOWN ? 1 : 0);
+
+                    if (!grid.fits(mask, nextX, nextY)) {
+                        continue;
+                    }
+
+                    next = toState(nextX, nextY, stateRotation);
+                } else {
+                    int turns = i == ROTATE_RIGHT ? KickTable.RIGHT : i == ROTATE_LEFT ? KickTable.LEFT : KickTable.HALF;
+                    int rotated = KickTable.rotate(grid, type, stateX, stateY, stateRotation, turns);
+
+                    if (rotated == Placement.NONE) {
+                        continue;
+                    }
+
+                    next = toState(Placement.getX(rotated), Placement.getY(rotated), Placement.getRotation(rotated));
+                }
+
+                if (!isVisited(next)) {
+                    visit(next);
+                    parents[next] = state;
+                    moves[next] = (byte) i;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Getter for size
+     * 
+     * @return the number of placements found by the last search
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter for a placement found by the last search
+     * 
+     * @param index the index of the placement, from 0 to size() - 1
+     * @return the packed position of the box of the shape, see Placement
+     */
+    public int getPlacement(int index) {
+        int state = placements[index];
+
+        return Placement.of(getX(state), getY(state), getRotation(state));
+    }
+
+    /**
+     * Getter for the type of shape of the last search
+     * 
+     * @return the type of shape
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Getter for the moves leading to a placement found by the last search
+     * 
+     * @param index the index of the placement, from 0 to size() - 1
+     * @return the moves (MOVE_LEFT, MOVE_RIGHT, MOVE_DOWN, ROTATE_RIGHT,
+     *         ROTATE_LEFT or ROTATE_HALF) from the starting position, the shape
+     *         is not locked by them
+     */
+    public byte[] getPath(int index) {
+        int length = 0;
+
+        for (int i = placements[index]; parents[i] != -1; i = parents[i]) {
+            length++;
+        }
+
+        byte[] path = new byte[length];
+
+        for (int i = placements[index]; parents[i] != -1; i = parents[i]) {
+            path[--length] = moves[i];
+        }
+
+        return path;
+    }
+
+    /**
+     * Moves the current shape of a board along a path and locks it
+     * 
+     * @param board the board
+     * @param path the moves returned by getPath()
+     */
+    public static void apply(Board board, byte[] path) {
+        for (byte i : path) {
+            if (i == MOVE_LEFT) {
+                board.moveLeft();
+            } else if (i == MOVE_RIGHT) {
+                board.moveRight();
+            } else if (i == MOVE_DOWN) {
+                board.moveDown();
+            } else if (i == ROTATE_RIGHT) {
+                board.rotate();
+            } else if (i == ROTATE_LEFT) {
+                board.rotateLeft();
+            } else {
+                board.rotate180();
+            }
+        }
+
+        MovePolicy.drop(board);
+    }
+
+    /**
+     * Keeps a state where the shape can be locked, unless a placement covering
+     * the same cells was already found
+     * 
+     * @param state the state
+     * @param mask the mask of the shape in that state
+     * @param x the x coordinate of the box
+     * @param y the y coordinate of the box
+     */
+    private void addPlacement(int state, int mask, int x, int y) {
+        // The bits of a mask are in the same order as the cells of the board, so
+        // the cells are packed from the first to the last
+        int key = 0;
+        int shift = 0;
+
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            int bit = Integer.numberOfTrailingZeros(bits);
+            key |= ((y + (bit >> 2)) * Board.WIDTH + x + (bit & 3)) << shift;
+            shift += 8;
+        }
+
+        if (covered.add(key)) {
+            placements[size++] = state;
+        }
+    }
+
+    /**
+     * Packs a position into a state
+     */
+    private static int toState(int x, int y, int rotation) {
+        return (x + MARGIN) | (y + MARGIN) << X_BITS | rotation << (X_BITS + Y_BITS);
+    }
+
+    /**
+     * Getter for the x coordinate of a state
+     */
+    private static int getX(int state) {
+        return (state & ((1 << X_BITS) - 1)) - MARGIN;
+    }
+
+    /**
+     * Getter for the y coordinate of a state
+     */
+    private static int getY(int state) {
+        return ((state >>> X_BITS) & ((1 << Y_BITS) - 1)) - MARGIN;
+    }
+
+    /**
+     * Getter for the rotation of a state
+     */
+    private static int getRotation(int state) {
+        return state >>> (X_BITS + Y_BITS);
+    }
+
+    /**
+     * Checks if a state was reached
+     */
+    private boolean isVisited(int state) {
+        return (visited[state >>> 6] & (1L << state)) != 0;
+    }
+
+    /**
+     * Marks a state as reached
+     */
+    private void visit(int state) {
+        visited[state >>> 6] |= 1L << state;
+    }
+
+}
@@ -123,6 +123,11 @@ class Point {
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        return CellKey.hash(CellKey.of(x, y));
+    }
+
     @Override
     public String toString() {
         return "Point X: " + x + " Y: " + y + " Type: " + type;
@@ -0,0 +1,32 @@
+import java.util.SplittableRandom;
+
+/**
+ * The class <b>RandomPolicy</b> is a player that rotates the current shape and
+ * moves it left or right randomly before dropping it. Used as a baseline for
+ * simulations.
+ * 
+ * @author Benoît Jeaurond
+ */
+class RandomPolicy implements MovePolicy {
+
+    @Override
+    public void place(Board board, SplittableRandom rand) {
+        int rotations = rand.nextInt(4);
+        int shift = rand.nextInt(Board.WIDTH) - Board.WIDTH / 2;
+
+        for (int i = 0; i < rotations; i++) {
+            board.rotate();
+        }
+
+        for (int i = 0; i < Math.abs(shift); i++) {
+            if (shift < 0) {
+                board.moveLeft();
+            } else {
+                board.moveRight();
+            }
+        }
+
+        MovePolicy.drop(board);
+    }
+
+}
@@ -0,0 +1,29 @@
+import java.util.Map;
+
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+
+/**
+ * The interface <b>Renderer</b> is implemented by the different ways of
+ * drawing the board on the stage.
+ * 
+ * @author Benoît Jeaurond
+ */
+interface Renderer {
+
+    /**
+     * Getter for the node showing the board
+     * 
+     * @return the node to add to the scene
+     */
+    Node getNode();
+
+    /**
+     * Draws the board
+     * 
+     * @param board the board to render
+     * @param palette the color of each type of shape
+     */
+    void render(Board board, Map<Integer, Color> palette);
+
+}
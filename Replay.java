@@ -0,0 +1,471 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The class <b>Replay</b> records a game so it can be played again: the seed
+ * of its shapes, then every tick where something happened. A tick of a replay
+ * is an event, either the moves applied on that tick (after the delayed auto
+ * shift, so a replay does not depend on the keyboard settings) or a change of
+ * the gravity feature or of the autoplay.
+ * 
+ * Every event is kept as two variable length integers, the number of ticks
+ * since the previous event and the event itself, so most events take 2 or 3
+ * bytes. The file starts with a header containing the seed and the final stats
+ * of the game, used to check that a replay gives the same game.
+ * 
+ * @author Benoît Jeaurond
+ */
+class Replay {
+
+    /**
+     * First bytes of a replay file ("TRPL") and version of the format
+     */
+    public static final int MAGIC = 0x5452504C, VERSION = 1;
+
+    /**
+     * Kinds of events, in the 3 lowest bits of an event
+     */
+    public static final int MOVES = 0, GRAVITY_ON = 1, GRAVITY_OFF = 2, AUTOPLAY_ON = 3, AUTOPLAY_OFF = 4;
+
+    /**
+     * Size of the buffer used to write and read files
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Size of the header of a replay file, in bytes
+     */
+    private static final int HEADER_SIZE = 34;
+
+    /**
+     * Maximum number of bytes of a variable length integer
+     */
+    private static final int MAX_VARINT_SIZE = 5;
+
+    /**
+     * Seed of the shapes and state of the gravity feature at the start
+     */
+    private long seed;
+    private boolean gravity;
+
+    /**
+     * Encoded events, only the first size bytes are used
+     */
+    private byte[] events;
+    private int size;
+
+    /**
+     * Tick of the last event
+     */
+    private long lastTick;
+
+    /**
+     * Number of ticks, score and number of cleared lines at the end of the game
+     */
+    private long endTick;
+    private int score, lines;
+
+    /**
+     * Constructor of the Replay class for a new game
+     * 
+     * @param seed the seed of the generator of the shapes, see Board(long)
+     * @param gravity true if the gravity feature is on at the start
+     */
+    public Replay(long seed, boolean gravity) {
+        this.seed = seed;
+        this.gravity = gravity;
+        this.events = new byte[1024];
+        this.endTick = Long.MAX_VALUE;
+    }
+
+    /**
+     * Adds the moves of a tick
+     * 
+     * @param tick the tick
+     * @param moves the moves other than left and right, see Game
+     * @param shift the number of cells moved right (left if negative)
+     */
+    public void addMoves(long tick, int moves, int shift) {
+        // Zigzag encoding keeps small negative shifts small
+        add(tick, MOVES | moves << 3 | ((shift << 1) ^ (shift >> 31)) << 11);
+    }
+
+    /**
+     * Adds a change of the gravity feature
+     * 
+     * @param tick the first tick played with the change
+     * @param gravity true if gravity is turned on
+     */
+    public void addGravity(long tick, boolean gravity) {
+        add(tick, gravity ? GRAVITY_ON : GRAVITY_OFF);
+    }
+
+    /**
+     * Adds a change of the autoplay
+     * 
+     * @param tick the first tick played with the change
+     * @param autoplay true if a player places the shapes
+     */
+    public void addAutoplay(long tick, boolean autoplay) {
+        add(tick, autoplay ? AUTOPLAY_ON : AUTOPLAY_OFF);
+    }
+
+    /**
+     * Keeps the stats at the end of the game
+     * 
+     * @param tick the number of ticks played
+     * @param board the board of the game
+     */
+    public void finish(long tick, Board board) {
+        this.endTick = tick;
+        this.score = board.getScore();
+        this.lines = board.getNumClearedLines();
+    }
+
+    /**
+     * Adds an event
+     */
+    private void add(long tick, int event) {
+        if (size + 10 > events.length) {
+            byte[] bigger = new byte[events.length * 2];
+            System.arraycopy(events, 0, bigger, 0, size);
+            events = bigger;
+        }
+
+        size = putVarInt(events, size, (int) (tick - lastTick));
+        size = putVarInt(events, size, event);
+        lastTick = tick;
+    }
+
+    /**
+     * Writes the replay in a file, replacing it if it exists
+     * 
+     * @param path the path of the file
+     * @throws IOException if the file can't be written
+     */
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+            buffer.putInt(MAGIC);
+            buffer.put((byte) VERSION);
+            buffer.putLong(seed);
+            buffer.put((byte) (gravity ? 1 : 0));
+            buffer.putLong(endTick);
+            buffer.putInt(score);
+            buffer.putInt(lines);
+            buffer.putInt(size);
+
+            for (int i = 0; i < size;) {
+                int length = Math.min(buffer.remaining(), size - i);
+                buffer.put(events, i, length);
+                i += length;
+
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a replay from a file
+     * 
+     * @param path the path of the file
+     * @return the replay
+     * @throws IOException if the file can't be read or is not a replay
+     */
+    public static Replay read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header);
+
+            if (header.getInt() != MAGIC || header.get() != VERSION) {
+                throw new IOException(path + " is not a replay");
+            }
+
+            Replay replay = new Replay(header.getLong(), header.get() != 0);
+            replay.endTick = header.getLong();
+            replay.score = header.getInt();
+            replay.lines = header.getInt();
+            replay.size = header.getInt();
+
+            // A corrupted size would allocate a huge array or fail with another exception
+            if (replay.size < 0 || replay.size > channel.size() - HEADER_SIZE) {
+                throw new IOException(path + " is corrupted");
+            }
+
+            replay.events = new byte[Math.max(replay.size, 16)];
+
+            ByteBuffer events = ByteBuffer.wrap(replay.events, 0, replay.size);
+            readFully(channel, events);
+
+            // Every event is a tick and a value, checked once so the reader never goes past the events
+            for (int i = 0; i < replay.size;) {
+                i = replay.skipVarInt(replay.skipVarInt(i));
+
+                if (i < 0) {
+                    throw new IOException(path + " is corrupted");
+                }
+            }
+
+            return replay;
+        }
+    }
+
+    /**
+     * Reads from a channel until a buffer is full, then flips it
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of replay");
+            }
+        }
+
+        buffer.flip();
+    }
+
+    /**
+     * Finds the end of a variable length integer of the events
+     * 
+     * @param position the position of the integer, -1 if a previous integer
+     *                 was invalid
+     * @return the position after the integer, -1 if it goes past the events or
+     *         is longer than MAX_VARINT_SIZE bytes
+     */
+    private int skipVarInt(int position) {
+        for (int i = position; i >= 0 && i < size && i - position < MAX_VARINT_SIZE; i++) {
+            if (events[i] >= 0) {
+                return i + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Writes a variable length integer, 7 bits per byte
+     * 
+     * @return the position after the integer
+     */
+    private static int putVarInt(byte[] bytes, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+
+        return position;
+    }
+
+    /**
+     * Getter of seed
+     * 
+     * @return the seed of the generator of the shapes
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Getter of gravity
+     * 
+     * @return true if the gravity feature is on at the start
+     */
+    public boolean getGravity() {
+        return gravity;
+    }
+
+    /**
+     * Getter of endTick
+     * 
+     * @return the number of ticks of the game, Long.MAX_VALUE if it was not
+     *         finished
+     */
+    public long getEndTick() {
+        return endTick;
+    }
+
+    /**
+     * Getter of score
+     * 
+     * @return the score at the end of the game
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Getter of lines
+     * 
+     * @return the number of cleared lines at the end of the game
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * Getter for the size of the events
+     * 
+     * @return the number of bytes of the encoded events
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Creates a reader of the events from the start
+     * 
+     * @return a new reader
+     */
+    public Reader reader() {
+        return new Reader();
+    }
+
+    /**
+     * The class <b>Reader</b> decodes the events of a replay in order. The event
+     * at the position of the reader can be read before moving to the next one.
+     */
+    class Reader {
+
+        /**
+         * Position of the next event in the bytes, and end of the current event
+         */
+        private int position, end;
+
+        /**
+         * Tick of the event before the current event, tick and value of the
+         * current event
+         */
+        private long previousTick, tick;
+        private int event;
+
+        /**
+         * Constructor of the Reader class, reads the first event
+         */
+        private Reader() {
+            seek(0, 0);
+        }
+
+        /**
+         * Checks if there is a current event
+         * 
+         * @return false once every event was read
+         */
+        public boolean hasEvent() {
+            return position < size;
+        }
+
+        /**
+         * Moves to the next event
+         */
+        public void next() {
+            seek(end, tick);
+        }
+
+        /**
+         * Moves to an event
+         * 
+         * @param position the position of the event, returned by getPosition()
+         * @param previousTick the tick of the event before it, 0 for the first
+         */
+        public void seek(int position, long previousTick) {
+            this.position = position;
+            this.previousTick = previousTick;
+            this.tick = previousTick;
+
+            if (position < size) {
+                int delta = 0;
+                int shift = 0;
+                int i = position;
+
+                do {
+                    delta |= (events[i] & 0x7F) << shift;
+                    shift += 7;
+                } while (events[i++] < 0 && i < size && shift < 7 * MAX_VARINT_SIZE);
+
+                int value = 0;
+                shift = 0;
+
+                do {
+                    value |= (events[i] & 0x7F) << shift;
+                    shift += 7;
+                } while (events[i++] < 0 && i < size && shift < 7 * MAX_VARINT_SIZE);
+
+                this.tick = previousTick + delta;
+                this.event = value;
+                this.end = i;
+            }
+        }
+
+        /**
+         * Getter of position
+         * 
+         * @return the position of the current event
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Getter of previousTick
+         * 
+         * @return the tick of the event before the current event, used with
+         *         getPosition() to come back to the current event
+         */
+        public long getPreviousTick() {
+            return previousTick;
+        }
+
+        /**
+         * Getter of tick
+         * 
+         * @return the tick of the current event
+         */
+        public long getTick() {
+            return tick;
+        }
+
+        /**
+         * Getter for the kind of the current event
+         * 
+         * @return MOVES, GRAVITY_ON, GRAVITY_OFF, AUTOPLAY_ON or AUTOPLAY_OFF
+         */
+        public int getKind() {
+            return event & 0x7;
+        }
+
+        /**
+         * Getter for the moves of the current event
+         * 
+         * @return the moves other than left and right, see Game
+         */
+        public int getMoves() {
+            return (event >>> 3) & 0xFF;
+        }
+
+        /**
+         * Getter for the shift of the current event
+         * 
+         * @return the number of cells moved right (left if negative)
+         */
+        public int getShift() {
+            int zigzag = event >>> 11;
+
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+    }
+
+}
@@ -0,0 +1,213 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The class <b>ReplayPlayer</b> plays a replay again on a new board. It is a
+ * game whose moves come from the replay instead of the keyboard, so it can be
+ * shown in real time by the game loop or played as fast as possible without a
+ * display. The state of the game is kept every few seconds (a keyframe), so
+ * going back in the replay only plays again the ticks since the last keyframe.
+ * 
+ * Run it with: java ReplayPlayer [replay files]
+ * 
+ * @author Benoît Jeaurond
+ */
+class ReplayPlayer extends Game {
+
+    /**
+     * Number of ticks between two keyframes
+     */
+    public static final int KEYFRAME_TICKS = 10 * TICKS_PER_SECOND;
+
+    /**
+     * The replay being played, and the reader of its next events
+     */
+    private Replay replay;
+    private Replay.Reader reader;
+
+    /**
+     * Player of the ticks where the autoplay was on
+     */
+    private MovePolicy autoplay;
+    private boolean autoplayOn;
+
+    /**
+     * Keyframes of the ticks played so far, in order
+     */
+    private List<Keyframe> keyframes;
+
+    /**
+     * Constructor of the ReplayPlayer class
+     * 
+     * @param replay the replay to be played
+     * @param autoplay the player of the ticks where the autoplay was on, the same
+     *                 as when the replay was recorded
+     */
+    public ReplayPlayer(Replay replay, MovePolicy autoplay) {
+        super(new Board(replay.getSeed()));
+
+        this.replay = replay;
+        this.reader = replay.reader();
+        this.autoplay = autoplay;
+        this.keyframes = new ArrayList<Keyframe>();
+
+        getBoard().setGravity(replay.getGravity());
+        keyframes.add(new Keyframe());
+    }
+
+    @Override
+    public boolean tick() {
+        if (isFinished()) {
+            return false;
+        }
+
+        long tick = getTicks() + 1;
+        int moves = 0;
+        int shift = 0;
+
+        for (; reader.hasEvent() && reader.getTick() == tick; reader.next()) {
+            switch (reader.getKind()) {
+            case Replay.MOVES:
+                moves |= reader.getMoves();
+                shift += reader.getShift();
+                break;
+            case Replay.GRAVITY_ON:
+            case Replay.GRAVITY_OFF:
+                getBoard().setGravity(reader.getKind() == Replay.GRAVITY_ON);
+                break;
+            default:
+                setAutoplay(reader.getKind() == Replay.AUTOPLAY_ON);
+            }
+        }
+
+        boolean changed = step(moves, shift);
+
+        if (getTicks() == keyframes.get(keyframes.size() - 1).ticks + KEYFRAME_TICKS) {
+            keyframes.add(new Keyframe());
+        }
+
+        return changed;
+    }
+
+    /**
+     * Goes to a tick of the replay, from the closest keyframe before it
+     * 
+     * @param tick the tick, the replay stops at its last tick
+     */
+    public void seek(long tick) {
+        int index = (int) Math.min(Math.max(tick, 0) / KEYFRAME_TICKS, keyframes.size() - 1);
+
+        // Going forward from the current tick is faster than from the keyframe
+        if (tick < getTicks() || keyframes.get(index).ticks > getTicks()) {
+            keyframes.get(index).restore();
+        }
+
+        while (getTicks() < tick && !isFinished()) {
+            tick();
+        }
+    }
+
+    /**
+     * Checks if the replay is finished
+     * 
+     * @return true if the game is over or every tick of the replay was played
+     */
+    public boolean isFinished() {
+        return getBoard().getGameOver() || getTicks() >= replay.getEndTick();
+    }
+
+    /**
+     * Getter of replay
+     * 
+     * @return the replay being played
+     */
+    public Replay getReplay() {
+        return replay;
+    }
+
+    /**
+     * Turns the autoplay on or off
+     */
+    private void setAutoplay(boolean on) {
+        autoplayOn = on;
+        setPolicy(on ? autoplay : null, new SplittableRandom(replay.getSeed()));
+    }
+
+    /**
+     * The class <b>Keyframe</b> is the state of the replay at a tick.
+     */
+    private class Keyframe {
+
+        private BoardState state;
+        private long ticks, previousTick;
+        private int gravityCells, lockTicks, position;
+        private boolean autoplayOn;
+
+        /**
+         * Constructor of the Keyframe class, keeps the current state of the
+         * replay
+         */
+        private Keyframe() {
+            this.state = getBoard().getState();
+            this.ticks = getTicks();
+            this.gravityCells = getGravityCells();
+            this.lockTicks = getLockTicks();
+            this.position = reader.getPosition();
+            this.previousTick = reader.getPreviousTick();
+            this.autoplayOn = ReplayPlayer.this.autoplayOn;
+        }
+
+        /**
+         * Goes back to the state of the keyframe
+         */
+        private void restore() {
+            ReplayPlayer.this.restore(state, ticks, gravityCells, lockTicks);
+            reader.seek(position, previousTick);
+            setAutoplay(autoplayOn);
+        }
+
+    }
+
+    /**
+     * Main method, plays replays as fast as possible and checks that they give
+     * the same score and lines as when they were recorded.
+     */
+    public static void main(String[] args) {
+        Bot bot = new Bot(ForkJoinPool.commonPool(), 2);
+        int failed = 0;
+
+        for (String i : args) {
+            try {
+                Replay replay = Replay.read(Paths.get(i));
+                ReplayPlayer player = new ReplayPlayer(replay, bot);
+                long start = System.nanoTime();
+
+                while (!player.isFinished()) {
+                    player.tick();
+                }
+
+                double seconds = (System.nanoTime() - start) / 1e9;
+                Board board = player.getBoard();
+                boolean same = board.getScore() == replay.getScore() && board.getNumClearedLines() == replay.getLines();
+
+                if (!same) {
+                    failed++;
+                }
+
+                System.out.println(String.format("%s %s: %d ticks (%.0f ticks/s), score %d (recorded %d), lines %d (recorded %d), %d bytes of events",
+                        same ? "ok    " : "FAILED", i, player.getTicks(), player.getTicks() / seconds, board.getScore(), replay.getScore(),
+                        board.getNumClearedLines(), replay.getLines(), replay.getSize()));
+            } catch (IOException e) {
+                failed++;
+                System.out.println("FAILED " + i + ": " + e.getMessage());
+            }
+        }
+
+        System.out.println(failed == 0 ? "Every replay gave the same game" : failed + " replays failed");
+    }
+
+}
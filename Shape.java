@@ -3,13 +3,94 @@ import java.util.List;
 
 /**
  * The class <b>Shape</b> represents the tetrominos used in Tetris. This class
- * can create them, rotate them, and move them. A list of points are alse kept
- * to represent the shape.
+ * can create them, rotate them, and move them.
+ * 
+ * The cells of every type and rotation are computed once and kept in tables,
+ * as 16 bit masks of a 4 by 4 box where the bit (dy * 4 + dx) is set if the
+ * cell at (dx, dy) of the box is a part of the shape. A shape is then only its
+ * type, its rotation and the position of its box, so rotating it or testing a
+ * rotation is a table lookup. Its list of points is only a view of its cells
+ * on the board, placed from these tables every time the shape moves.
  * 
  * @author Benoît Jeaurond
  */
 class Shape {
 
+    /**
+     * Cells of every type of shape (index 0 is unused) in the spawn orientation,
+     * as (dx, dy) pairs within its box
+     * 
+     * Based on http://tetris.wikia.com/wiki/SRS
+     */
+    private static final int[][] SPAWN_CELLS = {
+        {},
+        { 2, 0, 0, 1, 1, 1, 2, 1 },
+        { 0, 1, 1, 1, 2, 1, 3, 1 },
+        { 1, 0, 0, 1, 1, 1, 2, 1 },
+        { 1, 0, 2, 0, 0, 1, 1, 1 },
+        { 0, 0, 1, 0, 1, 1, 2, 1 },
+        { 0, 0, 0, 1, 1, 1, 2, 1 },
+        { 1, 0, 2, 0, 1, 1, 2, 1 }
+    };
+
+    /**
+     * Mask of the cells of every type (index 0 is unused) and rotation
+     */
+    private static final int[][] MASKS = new int[8][4];
+
+    /**
+     * Cells of every type and rotation, as the bit index (dy * 4 + dx) of each
+     * cell in the mask
+     */
+    private static final int[][][] CELLS = new int[8][4][4];
+
+    /**
+     * Row of the lowest cell of every column of the box (-1 if the column is
+     * empty), for every type and rotation
+     */
+    private static final int[][][] BOTTOMS = new int[8][4][4];
+
+    /**
+     * Position of the box where every type of shape is created
+     */
+    public static final int SPAWN_X = 3, SPAWN_Y = 0;
+
+    static {
+        for (int i = 1; i < 8; i++) {
+            // The I shape turns in a 4 by 4 box, the O shape does not turn
+            int size = i == 2 ? 4 : 3;
+
+            for (int j = 0; j < 8; j += 2) {
+                int dx = SPAWN_CELLS[i][j];
+                int dy = SPAWN_CELLS[i][j + 1];
+
+                for (int k = 0; k < 4; k++) {
+                    CELLS[i][k][j / 2] = dy * 4 + dx;
+                    MASKS[i][k] |= 1 << (dy * 4 + dx);
+
+                    if (i != 7) {
+                        // Rotation to the right within the box
+                        int rotated = size - 1 - dy;
+                        dy = dx;
+                        dx = rotated;
+                    }
+                }
+            }
+
+            for (int k = 0; k < 4; k++) {
+                for (int dx = 0; dx < 4; dx++) {
+                    BOTTOMS[i][k][dx] = -1;
+
+                    for (int dy = 0; dy < 4; dy++) {
+                        if ((MASKS[i][k] & (1 << (dy * 4 + dx))) != 0) {
+                            BOTTOMS[i][k][dx] = dy;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Contains the type of shape (an integer from 1 to 7)
      * 
@@ -29,7 +110,12 @@ class Shape {
     private int rotation;
 
     /**
-     * List containing the points of the shape
+     * Position of the top left corner of the box of the shape
+     */
+    private int x, y;
+
+    /**
+     * List containing the points of the shape, moved with the shape
      */
     private List<Point> points;
 
@@ -41,9 +127,15 @@ class Shape {
     public Shape(int num) {
         this.type = num;
         this.rotation = 0;
-        this.points = new ArrayList<Point>();
+        this.x = SPAWN_X;
+        this.y = getSpawnY(num);
+        this.points = new ArrayList<Point>(4);
 
-        createPoints();        
+        for (int i = 0; i < 4; i++) {
+            this.points.add(new Point(0, 0, type));
+        }
+
+        updatePoints();
     }
 
     /**
@@ -54,6 +146,8 @@ class Shape {
     public Shape(Shape shape) {
         this.type = shape.type;
         this.rotation = shape.rotation;
+        this.x = shape.x;
+        this.y = shape.y;
         this.points = new ArrayList<Point>(shape.points.size());
         for (Point i : shape.points) {
             this.points.add(new Point(i.getX(), i.getY(), type));
@@ -61,63 +155,38 @@ class Shape {
     }
 
     /**
-     * Sets the starting point for the shape according to its type
-     * 
-     * Based on http://tetris.wikia.com/wiki/SRS
+     * Moves the points of the shape where its box and rotation place them
      */
-    private void createPoints() {
-        if (type != 7 && type != 4 && type != 1 && type != 3) {
-            this.points.add(new Point(3, 0, type));
-        }
-
-        if (type != 1 && type != 6) {
-            this.points.add(new Point(4, 0, type));
-        }
+    private void updatePoints() {
+        int[] cells = CELLS[type][rotation];
 
-        if (type != 5 && type != 6 && type != 3) {
-            this.points.add(new Point(5, 0, type));
+        for (int i = 0; i < 4; i++) {
+            points.get(i).setLocation(x + (cells[i] & 3), y + (cells[i] >> 2));
         }
-
-        if (type == 2) {
-            this.points.add(new Point(6, 0, type));
-        } else {
-            this.points.add(new Point(4, 1, type));
-        }
-
-        if (type != 4 && type != 2) {
-            this.points.add(new Point(5, 1, type));
-        }
-
-        if (type == 1 || type == 4 || type == 6 || type == 3) {
-            this.points.add(new Point(3, 1, type));
-        }
-    } 
+    }
 
     /**
      * Moves the shape down one spot
      */
     public void moveDown() {
-        for (Point i : points) {
-            i.modY(1);
-        }
+        y++;
+        updatePoints();
     }
 
     /**
      * Moves the shape left one spot
      */
     public void moveLeft() {
-        for (Point i : points) {
-            i.modX(-1);
-        }
+        x--;
+        updatePoints();
     }
 
     /**
      * Moves the shape right one spot
      */
     public void moveRight() {
-        for (Point i : points) {
-            i.modX(1);
-        }
+        x++;
+        updatePoints();
     }
 
     /**
@@ -126,57 +195,22 @@ class Shape {
      * The algorithm used is based on http://tetris.wikia.com/wiki/SRS
      */
     public void rotate() {
-        if (type != 7) {
-            int lowX = 100;
-            int lowY = 100;
-
-            for (Point i : points) {
-                if (i.getX() < lowX) {
-                    lowX = i.getX();
-                }
-
-                if (i.getY() < lowY) {
-                    lowY = i.getY();
-                }
-            }
-
-            if (type == 2) {
-                for (Point i : points) {
-                    if (rotation == 0) {
-                        i.setLocation(i.getY() - lowY + lowX + 2, i.getX() - lowX + lowY - 1);
-                    } else if (rotation == 1) {
-                        i.setLocation(i.getY() - lowY + lowX - 2, i.getX() - lowX + lowY + 2);
-                    } else if (rotation == 2) {
-                        i.setLocation(i.getY() - lowY + lowX + 1, i.getX() - lowX + lowY - 2);
-                    } else {
-                        i.setLocation(i.getY() - lowY + lowX - 1, i.getX() - lowX + lowY + 1);
-                    }
-                }
-            } else {
-                for (Point i : points) {
-                    if (rotation == 1 || rotation == 2) {
-                        i.setLocation(2 - (i.getY() - lowY) + lowX - 1, (i.getX() - lowX - 1 + (rotation % 2 * 2)) + lowY);
-                    } else {
-                        i.setLocation(2 - (i.getY() - lowY) + lowX, (i.getX() - lowX) + lowY);
-                    }
-                }
-            }
-        }
-
         rotation = (rotation + 1) % 4;
+        updatePoints();
     }
 
     /**
-     * Getter for the points of the next rotation of the shape
+     * Moves the box of the shape and changes its rotation
      * 
-     * @return list of rotated points
+     * @param x the new x coordinate of the box
+     * @param y the new y coordinate of the box
+     * @param rotation the new rotation (an integer from 0 to 3)
      */
-    public List<Point> getRotatePoints() {
-        Shape rotated = new Shape(this);
-
-        rotated.rotate();
-
-        return rotated.points;
+    public void setPosition(int x, int y, int rotation) {
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+        updatePoints();
     }
 
     /**
@@ -188,6 +222,42 @@ class Shape {
         return type;
     }
 
+    /**
+     * Getter of rotation
+     * 
+     * @return the rotation orientation (an integer from 0 to 3)
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Getter of x
+     * 
+     * @return the x coordinate of the box of the shape
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Getter of y
+     * 
+     * @return the y coordinate of the box of the shape
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Getter for the mask of the shape
+     * 
+     * @return the 16 bit mask of the cells of the shape in its box
+     */
+    public int getMask() {
+        return MASKS[type][rotation];
+    }
+
     /**
      * Getter for points
      * 
@@ -197,6 +267,52 @@ class Shape {
         return points;
     }
 
+    /**
+     * Getter for the mask of a type and rotation
+     * 
+     * @param type the type of shape
+     * @param rotation the rotation (an integer from 0 to 3)
+     * @return the 16 bit mask of the cells of the shape in its box
+     */
+    public static int getMask(int type, int rotation) {
+        return MASKS[type][rotation];
+    }
+
+    /**
+     * Getter for the cells of a type and rotation
+     * 
+     * @param type the type of shape
+     * @param rotation the rotation (an integer from 0 to 3)
+     * @return the 4 cells of the shape, as the bit index (dy * 4 + dx) of each
+     *         cell within its box, do not modify it
+     */
+    public static int[] getCells(int type, int rotation) {
+        return CELLS[type][rotation];
+    }
+
+    /**
+     * Getter for the lowest cells of a type and rotation
+     * 
+     * @param type the type of shape
+     * @param rotation the rotation (an integer from 0 to 3)
+     * @return the row of the lowest cell of every column of the box, -1 if the
+     *         column is empty, do not modify it
+     */
+    public static int[] getBottoms(int type, int rotation) {
+        return BOTTOMS[type][rotation];
+    }
+
+    /**
+     * Getter for the row where the box of a type of shape is created
+     * 
+     * @param type the type of shape
+     * @return the y coordinate of the box, the I shape starts a row higher so it
+     *         appears in the first row
+     */
+    public static int getSpawnY(int type) {
+        return type == 2 ? SPAWN_Y - 1 : SPAWN_Y;
+    }
+
     @Override
     public String toString() {
         String str = "";
@@ -208,4 +324,4 @@ class Shape {
         return str;
     }
 
-}
\ No newline at end of file
+}
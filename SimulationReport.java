@@ -0,0 +1,170 @@
+/**
+ * The class <b>SimulationReport</b> keeps the statistics of many headless
+ * games: the number of games and shapes, and the total, minimum and maximum
+ * score, cleared lines and level.
+ * 
+ * @author Benoît Jeaurond
+ */
+class SimulationReport {
+
+    /**
+     * Number of games and of shapes played
+     */
+    private long games, shapes;
+
+    /**
+     * Totals of the finished games
+     */
+    private long totalScore, totalLines, totalLevel;
+
+    /**
+     * Minimums and maximums of the finished games
+     */
+    private int minScore, maxScore, minLines, maxLines, minLevel, maxLevel;
+
+    /**
+     * Time taken by the simulation in nanoseconds
+     */
+    private long nanos;
+
+    /**
+     * Constructor of the SimulationReport class
+     */
+    public SimulationReport() {
+        this.minScore = Integer.MAX_VALUE;
+        this.minLines = Integer.MAX_VALUE;
+        this.minLevel = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Adds a finished game
+     * 
+     * @param board the board of the game
+     */
+    public void add(Board board) {
+        games++;
+        shapes += board.getNumShapes();
+
+        totalScore += board.getScore();
+        totalLines += board.getNumClearedLines();
+        totalLevel += board.getLevel();
+
+        minScore = Math.min(minScore, board.getScore());
+        maxScore = Math.max(maxScore, board.getScore());
+        minLines = Math.min(minLines, board.getNumClearedLines());
+        maxLines = Math.max(maxLines, board.getNumClearedLines());
+        minLevel = Math.min(minLevel, board.getLevel());
+        maxLevel = Math.max(maxLevel, board.getLevel());
+    }
+
+    /**
+     * Adds the games of another report
+     * 
+     * @param report the report to add
+     */
+    public void add(SimulationReport report) {
+        games += report.games;
+        shapes += report.shapes;
+
+        totalScore += report.totalScore;
+        totalLines += report.totalLines;
+        totalLevel += report.totalLevel;
+
+        minScore = Math.min(minScore, report.minScore);
+        maxScore = Math.max(maxScore, report.maxScore);
+        minLines = Math.min(minLines, report.minLines);
+        maxLines = Math.max(maxLines, report.maxLines);
+        minLevel = Math.min(minLevel, report.minLevel);
+        maxLevel = Math.max(maxLevel, report.maxLevel);
+    }
+
+    /**
+     * Setter for nanos
+     * 
+     * @param nanos the time taken by the simulation in nanoseconds
+     */
+    public void setNanos(long nanos) {
+        this.nanos = nanos;
+    }
+
+    /**
+     * Getter of games
+     * 
+     * @return the number of games played
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Getter of shapes
+     * 
+     * @return the number of shapes played
+     */
+    public long getShapes() {
+        return shapes;
+    }
+
+    /**
+     * Getter for the average score
+     * 
+     * @return the average score of the games
+     */
+    public double getAverageScore() {
+        return games != 0 ? (double) totalScore / games : 0;
+    }
+
+    /**
+     * Getter for the average number of cleared lines
+     * 
+     * @return the average number of cleared lines of the games
+     */
+    public double getAverageLines() {
+        return games != 0 ? (double) totalLines / games : 0;
+    }
+
+    /**
+     * Getter for the average level
+     * 
+     * @return the average level reached by the games
+     */
+    public double getAverageLevel() {
+        return games != 0 ? (double) totalLevel / games : 0;
+    }
+
+    /**
+     * Getter for the number of games per second
+     * 
+     * @return the number of games played per second
+     */
+    public double getGamesPerSecond() {
+        return nanos != 0 ? games * 1e9 / nanos : 0;
+    }
+
+    /**
+     * Getter for the number of shapes per second
+     * 
+     * @return the number of shapes played per second
+     */
+    public double getShapesPerSecond() {
+        return nanos != 0 ? shapes * 1e9 / nanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        if (games == 0) {
+            return "No games played";
+        }
+
+        StringBuffer sb = new StringBuffer();
+
+        sb.append(String.format("games   %d in %.3f s (%.1f games/s, %.0f shapes/s)%n", games, nanos / 1e9, getGamesPerSecond(), getShapesPerSecond()));
+        sb.append(String.format("shapes  %d (%.1f per game)%n", shapes, (double) shapes / games));
+        sb.append(String.format("score   avg %.1f  min %d  max %d%n", getAverageScore(), minScore, maxScore));
+        sb.append(String.format("lines   avg %.2f  min %d  max %d%n", getAverageLines(), minLines, maxLines));
+        sb.append(String.format("level   avg %.2f  min %d  max %d%n", getAverageLevel(), minLevel, maxLevel));
+
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,214 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * The class <b>Simulator</b> plays many games of Tetris without JavaFX, using a
+ * move policy as the player. The games are shared between threads, and every
+ * game has its own seed (the seed of the simulation plus the number of the
+ * game), so a simulation gives the same results with any number of threads.
+ * 
+ * The result of every game can also be stored in a GameHistory file.
+ * 
+ * Run it with: java Simulator [games] [threads] [seed] [policy] [max shapes] [generator] [history file]
+ * 
+ * @author Benoît Jeaurond
+ */
+class Simulator {
+
+    /**
+     * The player of the games
+     */
+    private MovePolicy policy;
+
+    /**
+     * Creates the piece generator of a game from its seed
+     */
+    private LongFunction<PieceGenerator> generators;
+
+    /**
+     * Number of threads playing games
+     */
+    private int threads;
+
+    /**
+     * Seed of the first game
+     */
+    private long seed;
+
+    /**
+     * Number of shapes after which a game is stopped, 0 for no limit
+     */
+    private int maxShapes;
+
+    /**
+     * Where the result of every game is stored, null if they are not stored
+     */
+    private GameHistory history;
+
+    /**
+     * Constructor of the Simulator class
+     * 
+     * @param policy the player of the games, shared by every thread
+     * @param generators creates the piece generator of a game from its seed
+     * @param threads the number of threads playing games
+     * @param seed the seed of the first game
+     * @param maxShapes the number of shapes after which a game is stopped, 0 for
+     *                  no limit
+     */
+    public Simulator(MovePolicy policy, LongFunction<PieceGenerator> generators, int threads, long seed, int maxShapes) {
+        this.policy = policy;
+        this.generators = generators;
+        this.threads = threads;
+        this.seed = seed;
+        this.maxShapes = maxShapes;
+    }
+
+    /**
+     * Plays games and gathers their statistics
+     * 
+     * @param games the number of games to play
+     * @return the statistics of the games
+     */
+    public SimulationReport run(long games) {
+        AtomicLong nextGame = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<SimulationReport>> futures = new ArrayList<Future<SimulationReport>>(threads);
+
+        // Each thread takes the next game to play until there are none left
+        Callable<SimulationReport> worker = () -> {
+            SimulationReport report = new SimulationReport();
+            long game;
+
+            while ((game = nextGame.getAndIncrement()) < games) {
+                long gameStart = System.nanoTime();
+                Board board = play(seed + game);
+                report.add(board);
+
+                if (history != null) {
+                    history.append(seed + game, board, System.nanoTime() - gameStart);
+                }
+            }
+
+            return report;
+        };
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(worker));
+        }
+
+        SimulationReport total = new SimulationReport();
+
+        try {
+            for (Future<SimulationReport> i : futures) {
+                total.add(i.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e);
+        } finally {
+            executor.shutdown();
+        }
+
+        total.setNanos(System.nanoTime() - start);
+
+        return total;
+    }
+
+    /**
+     * Plays a single game
+     * 
+     * @param gameSeed the seed of the game
+     * @return the board at the end of the game
+     */
+    public Board play(long gameSeed) {
+        Board board = new Board(generators.apply(gameSeed));
+        SplittableRandom rand = new SplittableRandom(gameSeed);
+
+        while (!board.getGameOver() && (maxShapes == 0 || board.getNumShapes() < maxShapes)) {
+            policy.place(board, rand);
+        }
+
+        return board;
+    }
+
+    /**
+     * Setter for history
+     * 
+     * @param history where the result of every game is stored, null to not
+     *                store them
+     */
+    public void setHistory(GameHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Creates a policy from its name
+     * 
+     * @param name the name of the policy
+     * @return the policy, or null if the name is unknown
+     */
+    public static MovePolicy createPolicy(String name) {
+        if (name.equals("random")) {
+            return new RandomPolicy();
+        } else if (name.equals("bot")) {
+            return new Bot(ForkJoinPool.commonPool(), 1);
+        } else if (name.equals("lookahead")) {
+            return new Bot(ForkJoinPool.commonPool(), 2);
+        }
+
+        return null;
+    }
+
+    /**
+     * Main method.
+     */
+    public static void main(String[] args) throws IOException {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        String name = args.length > 3 ? args[3] : "random";
+        int maxShapes = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        String generator = args.length > 5 ? args[5] : "nes";
+        String historyFile = args.length > 6 ? args[6] : null;
+
+        MovePolicy policy = createPolicy(name);
+
+        if (policy == null) {
+            System.out.println("Unknown policy " + name);
+            return;
+        }
+
+        if (PieceGenerator.create(generator, 0) == null) {
+            System.out.println("Unknown generator " + generator);
+            return;
+        }
+
+        System.out.println("Playing " + games + " games with the " + name + " policy and the " + generator + " generator on " + threads + " threads (seed " + seed + ")");
+        Simulator simulator = new Simulator(policy, gameSeed -> PieceGenerator.create(generator, gameSeed), threads, seed, maxShapes);
+
+        if (historyFile == null) {
+            System.out.print(simulator.run(games));
+            return;
+        }
+
+        try (GameHistory history = new GameHistory(Paths.get(historyFile))) {
+            simulator.setHistory(history);
+            System.out.print(simulator.run(games));
+        }
+
+        GameHistoryReader.main(new String[] { historyFile });
+    }
+
+}
@@ -0,0 +1,165 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The class <b>TranspositionTable</b> keeps the values of positions already
+ * evaluated by a search, by their Zobrist hash, so a position reached by
+ * different moves is only evaluated once. It is shared by the threads of the
+ * search: the table is split in stripes, each with its own lock.
+ * 
+ * The table has a fixed size. Each hash goes in a bucket of two entries: the
+ * first keeps the deepest evaluation, the second always keeps the latest one,
+ * so old shallow entries are evicted first.
+ * 
+ * @author Benoît Jeaurond
+ */
+class TranspositionTable {
+
+    /**
+     * Value returned when a position is not in the table
+     */
+    public static final double MISSING = Double.NaN;
+
+    /**
+     * Number of entries in a bucket
+     */
+    private static final int WAYS = 2;
+
+    /**
+     * Hash, depth and value of every entry, a depth of -1 marks an empty entry
+     */
+    private long[] hashes;
+    private int[] depths;
+    private double[] values;
+
+    /**
+     * Locks of the stripes of the table
+     */
+    private Object[] locks;
+
+    /**
+     * Number of buckets minus one, and number of stripes minus one
+     */
+    private int bucketMask, stripeMask;
+
+    /**
+     * Number of successful and failed lookups
+     */
+    private LongAdder hits, misses;
+
+    /**
+     * Constructor of the TranspositionTable class
+     * 
+     * @param capacity the maximum number of entries, rounded to a power of two
+     * @param stripes the number of locks, rounded to a power of two
+     */
+    public TranspositionTable(int capacity, int stripes) {
+        int buckets = Integer.highestOneBit(Math.max(1, capacity / WAYS));
+        int numLocks = Integer.highestOneBit(Math.max(1, Math.min(stripes, buckets)));
+
+        this.hashes = new long[buckets * WAYS];
+        this.depths = new int[buckets * WAYS];
+        this.values = new double[buckets * WAYS];
+        this.locks = new Object[numLocks];
+        this.bucketMask = buckets - 1;
+        this.stripeMask = numLocks - 1;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+
+        clear();
+    }
+
+    /**
+     * Finds the value of a position
+     * 
+     * @param hash the hash of the position
+     * @param depth the depth the position was evaluated at
+     * @return the value of the position, or MISSING if it is not in the table
+     */
+    public double get(long hash, int depth) {
+        int bucket = bucket(hash);
+
+        synchronized (locks[bucket & stripeMask]) {
+            for (int i = bucket * WAYS; i < bucket * WAYS + WAYS; i++) {
+                if (hashes[i] == hash && depths[i] == depth) {
+                    hits.increment();
+                    return values[i];
+                }
+            }
+        }
+
+        misses.increment();
+
+        return MISSING;
+    }
+
+    /**
+     * Keeps the value of a position
+     * 
+     * @param hash the hash of the position
+     * @param depth the depth the position was evaluated at
+     * @param value the value of the position
+     */
+    public void put(long hash, int depth, double value) {
+        int bucket = bucket(hash);
+        int first = bucket * WAYS;
+
+        synchronized (locks[bucket & stripeMask]) {
+            int slot;
+
+            if (hashes[first] == hash && depths[first] == depth) {
+                slot = first;
+            } else if (depth >= depths[first]) {
+                // The deepest entry moves to the second place instead of being lost
+                hashes[first + 1] = hashes[first];
+                depths[first + 1] = depths[first];
+                values[first + 1] = values[first];
+                slot = first;
+            } else {
+                slot = first + 1;
+            }
+
+            hashes[slot] = hash;
+            depths[slot] = depth;
+            values[slot] = value;
+        }
+    }
+
+    /**
+     * Removes every entry
+     */
+    public void clear() {
+        for (int i = 0; i < depths.length; i++) {
+            depths[i] = -1;
+        }
+    }
+
+    /**
+     * Getter of hits
+     * 
+     * @return the number of lookups that found a value
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Getter of misses
+     * 
+     * @return the number of lookups that did not find a value
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Finds the bucket of a hash
+     */
+    private int bucket(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & bucketMask;
+    }
+
+}
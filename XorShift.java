@@ -0,0 +1,91 @@
+/**
+ * The class <b>XorShift</b> creates random numbers with the xorshift64*
+ * algorithm. It is a lot faster than java.util.Random, is not shared between
+ * threads, and its whole state is a single long, so it can be copied and saved.
+ * 
+ * @author Benoît Jeaurond
+ */
+class XorShift {
+
+    /**
+     * State of the generator, never 0
+     */
+    private long state;
+
+    /**
+     * Constructor of the XorShift class specifying the seed
+     * 
+     * @param seed the seed, any value is accepted
+     */
+    public XorShift(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * Constructor of the XorShift class copying another generator, both then
+     * create the same numbers
+     * 
+     * @param rand the generator to be copied
+     */
+    public XorShift(XorShift rand) {
+        this.state = rand.state;
+    }
+
+    /**
+     * Resets the generator with a seed. The seed is mixed (with the splitmix64
+     * finalizer) so close seeds give different numbers.
+     * 
+     * @param seed the seed, any value is accepted
+     */
+    public void setSeed(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+
+        state = z != 0 ? z : 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Creates the next random long
+     * 
+     * @return a random long
+     */
+    public long nextLong() {
+        state ^= state >>> 12;
+        state ^= state << 25;
+        state ^= state >>> 27;
+
+        return state * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * Creates the next random integer within a range
+     * 
+     * @param bound the upper bound (exclusive), must be positive
+     * @return a random integer from 0 to bound - 1
+     */
+    public int nextInt(int bound) {
+        // Uses the high bits, which are the most random ones
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Getter of state
+     * 
+     * @return the state of the generator
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Setter of state, restores a state returned by getState()
+     * 
+     * @param state the new state of the generator
+     */
+    public void setState(long state) {
+        this.state = state != 0 ? state : 0x9E3779B97F4A7C15L;
+    }
+
+}
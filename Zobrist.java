@@ -0,0 +1,130 @@
+/**
+ * The class <b>Zobrist</b> keeps the random keys used to hash positions. The
+ * hash of a board is the xor of the keys of its occupied cells, so it can be
+ * updated when a single cell changes, and the key of the current shape (its
+ * type, rotation and position) is xored on top of it. The keys of the next
+ * shapes are used when the value of a position depends on them.
+ * 
+ * Based on https://en.wikipedia.org/wiki/Zobrist_hashing
+ * 
+ * @author Benoît Jeaurond
+ */
+final class Zobrist {
+
+    /**
+     * The box of a shape can be out of the board by up to 3 cells to the left
+     * and to the top
+     */
+    private static final int MARGIN = 3;
+
+    /**
+     * Number of positions of the box of a shape for each type and rotation
+     */
+    private static final int POSITIONS = (Board.WIDTH + MARGIN) * (Board.HEIGHT + MARGIN);
+
+    /**
+     * Key of every occupied cell, indexed by y * WIDTH + x
+     */
+    private static final long[] CELLS = new long[Board.WIDTH * Board.HEIGHT];
+
+    /**
+     * Key of every shape, indexed by type, rotation and position of the box
+     */
+    private static final long[][][] SHAPES = new long[8][4][POSITIONS];
+
+    /**
+     * Key of every type of next shape, indexed by position in the queue and type
+     */
+    private static final long[][] NEXT = new long[Board.PREVIEW][8];
+
+    /**
+     * Key xored when the gravity feature is on, since it changes how the
+     * position is played
+     */
+    public static final long GRAVITY;
+
+    static {
+        // Always the same keys, so hashes can be compared between runs
+        XorShift rand = new XorShift(0x5EED);
+
+        for (int i = 0; i < CELLS.length; i++) {
+            CELLS[i] = rand.nextLong();
+        }
+
+        for (int i = 1; i < SHAPES.length; i++) {
+            for (int j = 0; j < 4; j++) {
+                for (int k = 0; k < POSITIONS; k++) {
+                    SHAPES[i][j][k] = rand.nextLong();
+                }
+            }
+        }
+
+        GRAVITY = rand.nextLong();
+
+        for (int i = 0; i < NEXT.length; i++) {
+            for (int j = 1; j < 8; j++) {
+                NEXT[i][j] = rand.nextLong();
+            }
+        }
+    }
+
+    /**
+     * This class only contains static methods
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Getter for the key of an occupied cell
+     * 
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @return the key of the cell
+     */
+    public static long cell(int x, int y) {
+        return CELLS[y * Board.WIDTH + x];
+    }
+
+    /**
+     * Getter for the key of a shape
+     * 
+     * @param type the type of shape
+     * @param rotation the rotation of the shape
+     * @param x the x coordinate of the box
+     * @param y the y coordinate of the box
+     * @return the key of the shape
+     */
+    public static long shape(int type, int rotation, int x, int y) {
+        return SHAPES[type][rotation][(y + MARGIN) * (Board.WIDTH + MARGIN) + x + MARGIN];
+    }
+
+    /**
+     * Getter for the key of a next shape
+     * 
+     * @param position the position of the shape in the queue
+     * @param type the type of shape
+     * @return the key of the next shape
+     */
+    public static long next(int position, int type) {
+        return NEXT[position][type];
+    }
+
+    /**
+     * Computes the hash of cells from the masks of their rows
+     * 
+     * @param rows the bit mask of every row
+     * @return the xor of the keys of the occupied cells
+     */
+    public static long hash(int[] rows) {
+        long hash = 0;
+
+        for (int i = 0; i < rows.length; i++) {
+            for (int bits = rows[i]; bits != 0; bits &= bits - 1) {
+                hash ^= CELLS[i * Board.WIDTH + Integer.numberOfTrailingZeros(bits)];
+            }
+        }
+
+        return hash;
+    }
+
+}